@@ -0,0 +1,194 @@
+import net.toiditimtoi.workload.AggregationPipeline;
+import net.toiditimtoi.workload.City;
+import net.toiditimtoi.workload.CityDataset;
+import net.toiditimtoi.workload.ResourceSnapshot;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs an aggregation pipeline over a city dataset and reports what each run costs.
+ * Meant to reproduce production-sized loads without a JMH setup, e.g.
+ * <pre>
+ * gradle run --args="--size 10000000 --pipeline teeing --mode pool --pool-size 4 --warmup 5 --iterations 20"
+ * </pre>
+ */
+public class Main {
+
+    private static final String USAGE = """
+            Usage: Main [options]
+              --size <n>          number of generated cities (default 1000000)
+              --input <file>      load cities from a name,area,population CSV file instead
+              --seed <n>          seed of the generated dataset (default 42)
+              --pipeline <name>   grouping | teeing | top_k | partitioning (default grouping)
+              --mode <name>       sequential | parallel | pool (default parallel)
+              --pool-size <n>     parallelism of the custom pool in pool mode (default: number of cores)
+              --warmup <n>        warmup iterations, not reported (default 5)
+              --iterations <n>    measured iterations (default 10)
+            """;
+
+    enum Mode {
+        SEQUENTIAL, PARALLEL, POOL
+    }
+
+    /**
+     * The options of a run, checked before anything is loaded.
+     */
+    record Settings(AggregationPipeline pipeline, Mode mode, int warmup, int iterations, int poolSize,
+                    Path input, int size, long seed) {
+
+        static Settings of(Map<String, String> options) {
+            return new Settings(
+                    enumOption(options, "pipeline", AggregationPipeline.GROUPING),
+                    enumOption(options, "mode", Mode.PARALLEL),
+                    intOption(options, "warmup", 5, 0),
+                    intOption(options, "iterations", 10, 0),
+                    intOption(options, "pool-size", Runtime.getRuntime().availableProcessors(), 1),
+                    options.containsKey("input") ? Path.of(options.get("input")) : null,
+                    intOption(options, "size", 1_000_000, 0),
+                    longOption(options, "seed", 42));
+        }
+
+        private static <E extends Enum<E>> E enumOption(Map<String, String> options, String name, E defaultValue) {
+            var value = options.get(name);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return Enum.valueOf(defaultValue.getDeclaringClass(), value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown --" + name + ": " + value);
+            }
+        }
+
+        private static int intOption(Map<String, String> options, String name, int defaultValue, int min) {
+            var value = longOption(options, name, defaultValue);
+            if (value < min || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("--" + name + " must be between " + min + " and " + Integer.MAX_VALUE + ": " + value);
+            }
+            return (int) value;
+        }
+
+        private static long longOption(Map<String, String> options, String name, long defaultValue) {
+            var value = options.get(name);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("--" + name + " expects a number: " + value);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // before anything is checked, so that a bad option does not hide the help asked for with it
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.print(USAGE);
+            return;
+        }
+        Settings settings;
+        try {
+            settings = Settings.of(parse(args));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(1);
+            return;
+        }
+        var pipeline = settings.pipeline();
+        var mode = settings.mode();
+        var warmup = settings.warmup();
+        var iterations = settings.iterations();
+        var poolSize = settings.poolSize();
+
+        var loadStart = System.nanoTime();
+        List<City> cities = settings.input() != null
+                ? CityDataset.load(settings.input())
+                : CityDataset.generate(settings.size(), settings.seed());
+        System.out.printf("Dataset: %,d cities ready in %d ms%n", cities.size(), (System.nanoTime() - loadStart) / 1_000_000);
+        System.out.printf("Pipeline: %s, mode: %s%s, warmup: %d, iterations: %d%n",
+                pipeline, mode, mode == Mode.POOL ? " (" + poolSize + " threads)" : "", warmup, iterations);
+
+        var pool = mode == Mode.POOL ? new ForkJoinPool(poolSize) : null;
+        try {
+            for (int i = 0; i < warmup; i++) {
+                runOnce(pipeline, mode, pool, cities);
+            }
+            var latencies = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                var start = ResourceSnapshot.take();
+                var result = runOnce(pipeline, mode, pool, cities);
+                var cost = ResourceSnapshot.take().since(start);
+                latencies[i] = cost.nanoTime();
+                System.out.printf("Run %3d: %9.2f ms  %8.2f M cities/s  gc %3d  allocated %s  (result hash %08x)%n",
+                        i + 1, cost.nanoTime() / 1e6, throughput(cities.size(), cost.nanoTime()) / 1e6,
+                        cost.gcCount(), formatBytes(cost.allocatedBytes()), AggregationPipeline.resultHash(result));
+            }
+            report(latencies, cities.size());
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static Object runOnce(AggregationPipeline pipeline, Mode mode, ForkJoinPool pool, List<City> cities) throws Exception {
+        return switch (mode) {
+            case SEQUENTIAL -> pipeline.run(cities.stream());
+            case PARALLEL -> pipeline.run(cities.parallelStream());
+            // a parallel stream started from inside a pool runs on that pool, see ParallelStreamTest.runningWithACustomPool
+            case POOL -> pool.submit(() -> pipeline.run(cities.parallelStream())).get();
+        };
+    }
+
+    private static void report(long[] latencies, int size) {
+        if (latencies.length == 0) {
+            return;
+        }
+        var sorted = latencies.clone();
+        Arrays.sort(sorted);
+        var total = Arrays.stream(sorted).sum();
+        System.out.printf("Summary: p50 %.2f ms, p99 %.2f ms, min %.2f ms, max %.2f ms, mean throughput %.2f M cities/s%n",
+                percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6, sorted[0] / 1e6, sorted[sorted.length - 1] / 1e6,
+                throughput((long) size * sorted.length, total) / 1e6);
+    }
+
+    // nearest-rank percentile of sorted values
+    static long percentile(long[] sorted, double p) {
+        var rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double throughput(long elements, long nanos) {
+        return nanos == 0 ? 0 : elements * 1e9 / nanos;
+    }
+
+    private static String formatBytes(long bytes) {
+        return bytes < 0 ? "n/a" : String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    static Map<String, String> parse(String[] args) {
+        var options = new HashMap<String, String>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            var key = args[i].substring(2);
+            if (key.equals("help")) {
+                options.put(key, "true");
+            } else if (i + 1 < args.length) {
+                options.put(key, args[++i]);
+            } else {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+        }
+        return options;
+    }
+}
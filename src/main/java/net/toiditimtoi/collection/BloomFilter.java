@@ -0,0 +1,69 @@
+package net.toiditimtoi.collection;
+
+/**
+ * A bloom filter over 64-bit hashes: it may answer that it has seen a hash it has not, but never the opposite.
+ * The bit positions are derived from the two halves of the hash (double hashing), so callers hand in
+ * well-mixed hashes, e.g. {@link LongHashSet#mix64}.
+ */
+public final class BloomFilter {
+
+    private final long[] words;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions how many distinct hashes will be put
+     * @param falsePositiveRate the wanted probability that an unseen hash is reported as seen, in (0, 1)
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 0) {
+            throw new IllegalArgumentException("expectedInsertions must not be negative: " + expectedInsertions);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+        }
+        var insertions = Math.max(1, expectedInsertions);
+        // the optimal sizes: m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 hash functions
+        var bits = (long) Math.ceil(-insertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.words = new long[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) >>> 6))];
+        this.bitCount = (long) words.length << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / insertions * Math.log(2)));
+    }
+
+    /**
+     * @return true if the hash was certainly not put before, false if it probably was
+     */
+    public boolean put(long hash) {
+        var changed = false;
+        long h1 = (int) hash, h2 = hash >>> 32;
+        for (int i = 1; i <= hashCount; i++) {
+            var bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+            var word = (int) (bit >>> 6);
+            var mask = 1L << bit;
+            if ((words[word] & mask) == 0) {
+                words[word] |= mask;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public boolean mightContain(long hash) {
+        long h1 = (int) hash, h2 = hash >>> 32;
+        for (int i = 1; i <= hashCount; i++) {
+            var bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+}
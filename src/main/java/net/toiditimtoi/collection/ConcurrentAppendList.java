@@ -0,0 +1,238 @@
+package net.toiditimtoi.collection;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * An append-mostly list that can be streamed while writers keep appending.
+ * <p>
+ * Elements live in fixed-size chunks referenced from a directory. Slots below {@link #size()} are never written
+ * again in place, so a (directory, size) pair read by a reader is an immutable point-in-time view:
+ * {@link #snapshot()}, {@link #stream()} and {@link #iterator()} cost O(1) and never throw
+ * {@link java.util.ConcurrentModificationException}, unlike the {@code ArrayList} of
+ * {@code StreamApiTest.modifyingTheBackingCollection}.
+ * <p>
+ * Writers are serialized by a lock among themselves, readers never take it. {@link #set(int, Object)} copies the
+ * affected chunk and the directory so that snapshots taken before it still see the old value.
+ * Removal is not supported.
+ */
+public class ConcurrentAppendList<E> extends AbstractList<E> implements RandomAccess {
+
+    static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_SIZE = Integer.MAX_VALUE & ~CHUNK_MASK;
+
+    private final Object lock = new Object();
+
+    // published by the volatile write to size, which always happens after the directory is replaced
+    private volatile Object[][] chunks = new Object[4][];
+    private volatile int size;
+
+    public ConcurrentAppendList() {
+    }
+
+    public ConcurrentAppendList(Collection<? extends E> initial) {
+        addAll(initial);
+    }
+
+    @Override
+    public boolean add(E element) {
+        synchronized (lock) {
+            append(element);
+        }
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        synchronized (lock) {
+            if (index != size) {
+                throw new UnsupportedOperationException("elements can only be appended");
+            }
+            append(element);
+        }
+    }
+
+    /**
+     * Appends all elements under a single acquisition of the writer lock.
+     * Readers may observe a prefix of the batch while it is being appended.
+     */
+    @Override
+    public boolean addAll(Collection<? extends E> elements) {
+        synchronized (lock) {
+            for (var element : elements) {
+                append(element);
+            }
+        }
+        return !elements.isEmpty();
+    }
+
+    private void append(E element) {
+        var index = size;
+        if (index == MAX_SIZE) {
+            throw new IllegalStateException("list is full");
+        }
+        var directory = chunks;
+        var chunkIndex = index >>> CHUNK_SHIFT;
+        if (chunkIndex == directory.length) {
+            var grown = new Object[directory.length * 2][];
+            System.arraycopy(directory, 0, grown, 0, directory.length);
+            chunks = directory = grown;
+        }
+        var chunk = directory[chunkIndex];
+        if (chunk == null) {
+            chunk = directory[chunkIndex] = new Object[CHUNK_SIZE];
+        }
+        chunk[index & CHUNK_MASK] = element;
+        size = index + 1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        var currentSize = size;
+        Objects.checkIndex(index, currentSize);
+        return (E) chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    @Override
+    public E set(int index, E element) {
+        synchronized (lock) {
+            Objects.checkIndex(index, size);
+            var directory = chunks.clone();
+            var chunkIndex = index >>> CHUNK_SHIFT;
+            var chunk = directory[chunkIndex].clone();
+            @SuppressWarnings("unchecked")
+            var previous = (E) chunk[index & CHUNK_MASK];
+            chunk[index & CHUNK_MASK] = element;
+            directory[chunkIndex] = chunk;
+            chunks = directory;
+            return previous;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return an immutable view of the elements present at the time of the call
+     */
+    public Snapshot<E> snapshot() {
+        // size first: the directory read afterwards is at least as recent as the one that held these elements
+        var currentSize = size;
+        return new Snapshot<>(chunks, currentSize);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        var snapshot = snapshot();
+        return new SnapshotSpliterator<>(snapshot.chunks, 0, snapshot.size);
+    }
+
+    public static final class Snapshot<E> extends AbstractList<E> implements RandomAccess {
+        private final Object[][] chunks;
+        private final int size;
+
+        private Snapshot(Object[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            Objects.checkIndex(index, size);
+            return (E) chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Spliterator<E> spliterator() {
+            return new SnapshotSpliterator<>(chunks, 0, size);
+        }
+    }
+
+    /**
+     * Covers [index, fence) of a snapshot. Splits prefer chunk boundaries so that each half walks whole arrays.
+     */
+    static final class SnapshotSpliterator<E> implements Spliterator<E> {
+        private final Object[][] chunks;
+        private int index;
+        private final int fence;
+
+        SnapshotSpliterator(Object[][] chunks, int index, int fence) {
+            this.chunks = chunks;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (index >= fence) {
+                return false;
+            }
+            var element = (E) chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+            index++;
+            action.accept(element);
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super E> action) {
+            var i = index;
+            index = fence;
+            while (i < fence) {
+                var chunk = chunks[i >>> CHUNK_SHIFT];
+                var end = Math.min(fence, (i | CHUNK_MASK) + 1);
+                for (var slot = i & CHUNK_MASK; i < end; i++, slot++) {
+                    action.accept((E) chunk[slot]);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            var remaining = fence - index;
+            if (remaining < 2) {
+                return null;
+            }
+            var mid = index + (remaining >>> 1);
+            var chunkBoundary = mid & ~CHUNK_MASK;
+            if (chunkBoundary > index) {
+                mid = chunkBoundary;
+            }
+            var prefix = new SnapshotSpliterator<E>(chunks, index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE;
+        }
+    }
+}
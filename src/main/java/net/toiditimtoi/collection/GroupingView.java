@@ -0,0 +1,227 @@
+package net.toiditimtoi.collection;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A materialized {@code groupingBy}: the per-group results of an {@link IncrementalCollector}, kept up to date
+ * as elements are inserted, updated and deleted instead of being collected again from the whole source.
+ * <pre>{@code
+ * var averageByArea = GroupingView.groupingBy(City::area, IncrementalCollectors.averagingInt(City::population));
+ * averageByArea.insertAll(allCities);
+ * ...
+ * averageByArea.update(before, after);
+ * Map<Area, Double> current = averageByArea.snapshot();
+ * }</pre>
+ * A change costs one add or remove on the container of its group. A snapshot finishes again only the groups
+ * changed since the previous one and shares the other results with it, so refreshing costs O(changes + groups)
+ * rather than O(elements). Snapshots are immutable, each one reflects all the changes applied before it and
+ * none of those applied after, and a batch passed to {@link #apply} is seen either entirely or not at all, unless it fails half way.
+ * <p>
+ * The view does not keep the elements. It relies on the caller to only delete, or update from, an element that
+ * is currently in the view.
+ */
+public final class GroupingView<T, K, R> {
+
+    /**
+     * An insert when {@code before} is null, a delete when {@code after} is null, an update otherwise.
+     */
+    public record Change<T>(T before, T after) {
+
+        public Change {
+            if (before == null && after == null) {
+                throw new IllegalArgumentException("a change needs an element before or after it");
+            }
+        }
+
+        public static <T> Change<T> insert(T element) {
+            return new Change<>(null, element);
+        }
+
+        public static <T> Change<T> delete(T element) {
+            return new Change<>(element, null);
+        }
+
+        public static <T> Change<T> update(T before, T after) {
+            return new Change<>(before, after);
+        }
+    }
+
+    private final Function<? super T, ? extends K> classifier;
+    private final Supplier<Group<T, ?, R>> newGroup;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<K, Group<T, ?, R>> groups = new HashMap<>();
+    private final Set<K> changedGroups = new HashSet<>();
+    private Map<K, R> snapshot = Map.of();
+    private long size;
+
+    private <A> GroupingView(Function<? super T, ? extends K> classifier, IncrementalCollector<? super T, A, R> downstream) {
+        this.classifier = classifier;
+        this.newGroup = () -> new Group<T, A, R>(downstream);
+    }
+
+    public static <T, K, A, R> GroupingView<T, K, R> groupingBy(Function<? super T, ? extends K> classifier,
+                                                                IncrementalCollector<? super T, A, R> downstream) {
+        return new GroupingView<>(Objects.requireNonNull(classifier), Objects.requireNonNull(downstream));
+    }
+
+    public void insert(T element) {
+        lock.lock();
+        try {
+            add(element);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void insertAll(Iterable<? extends T> elements) {
+        lock.lock();
+        try {
+            for (var element : elements) {
+                add(element);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void delete(T element) {
+        lock.lock();
+        try {
+            remove(element);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the element to another group if its key changed.
+     */
+    public void update(T before, T after) {
+        lock.lock();
+        try {
+            remove(before);
+            add(after);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies the changes in order, no snapshot sees only a part of them.
+     */
+    public void apply(Iterable<? extends Change<? extends T>> changes) {
+        lock.lock();
+        try {
+            for (var change : changes) {
+                if (change.before() != null) {
+                    remove(change.before());
+                }
+                if (change.after() != null) {
+                    add(change.after());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the results of the non-empty groups as of now
+     */
+    public Map<K, R> snapshot() {
+        lock.lock();
+        try {
+            if (!changedGroups.isEmpty()) {
+                var next = new HashMap<>(snapshot);
+                for (var key : changedGroups) {
+                    var group = groups.get(key);
+                    if (group == null) {
+                        next.remove(key);
+                    } else {
+                        next.put(key, group.finish());
+                    }
+                }
+                changedGroups.clear();
+                snapshot = Collections.unmodifiableMap(next);
+            }
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how many elements are in the view
+     */
+    public long size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void add(T element) {
+        var key = keyOf(element);
+        groups.computeIfAbsent(key, k -> newGroup.get()).add(element);
+        size++;
+        changedGroups.add(key);
+    }
+
+    private void remove(T element) {
+        var key = keyOf(element);
+        var group = groups.get(key);
+        if (group == null) {
+            throw new IllegalStateException("no group " + key + " to remove " + element + " from");
+        }
+        if (group.remove(element)) {
+            groups.remove(key);
+        }
+        size--;
+        changedGroups.add(key);
+    }
+
+    private K keyOf(T element) {
+        return Objects.requireNonNull(classifier.apply(element), "element cannot be mapped to a null key");
+    }
+
+    /**
+     * The container of one group together with its collector, which keeps the container type out of the view.
+     */
+    private static final class Group<T, A, R> {
+        private final IncrementalCollector<? super T, A, R> collector;
+        private final A container;
+        private long size;
+
+        Group(IncrementalCollector<? super T, A, R> collector) {
+            this.collector = collector;
+            this.container = collector.create();
+        }
+
+        void add(T element) {
+            collector.add(container, element);
+            size++;
+        }
+
+        /**
+         * @return whether the group is empty now
+         */
+        boolean remove(T element) {
+            collector.remove(container, element);
+            return --size == 0;
+        }
+
+        R finish() {
+            return collector.finish(container);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package net.toiditimtoi.collection;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Like a {@link java.util.stream.Collector}, but elements can be taken out of the container again.
+ * This is what lets a {@link GroupingView} follow inserts, updates and deletes without recomputing a group.
+ * <p>
+ * {@link #remove} is only ever called with an element equal to one that was added before and not removed yet.
+ * {@link #finish} must not hand out the container itself, its result has to stay valid while the container changes.
+ *
+ * @param <T> the type of the elements
+ * @param <A> the mutable container
+ * @param <R> the result
+ */
+public interface IncrementalCollector<T, A, R> {
+
+    A create();
+
+    void add(A container, T element);
+
+    void remove(A container, T element);
+
+    R finish(A container);
+
+    static <T, A, R> IncrementalCollector<T, A, R> of(Supplier<A> supplier, BiConsumer<A, T> adder,
+                                                     BiConsumer<A, T> remover, Function<A, R> finisher) {
+        return new IncrementalCollector<>() {
+            @Override
+            public A create() {
+                return supplier.get();
+            }
+
+            @Override
+            public void add(A container, T element) {
+                adder.accept(container, element);
+            }
+
+            @Override
+            public void remove(A container, T element) {
+                remover.accept(container, element);
+            }
+
+            @Override
+            public R finish(A container) {
+                return finisher.apply(container);
+            }
+        };
+    }
+}
@@ -0,0 +1,311 @@
+package net.toiditimtoi.collection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IntSummaryStatistics;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * The downstream vocabulary of {@link java.util.stream.Collectors}, for collectors that can take elements back.
+ * <p>
+ * Counts, sums and averages are invertible, removing an element is as cheap as adding it. Minimum and maximum
+ * are not, so they keep the values of the group in a heap. A removed value is only marked, and it leaves the heap
+ * once it reaches the top, which keeps both operations O(log n) without searching the heap.
+ */
+public final class IncrementalCollectors {
+
+    private IncrementalCollectors() {
+    }
+
+    public static <T> IncrementalCollector<T, ?, Long> counting() {
+        return IncrementalCollector.<T, long[], Long>of(
+                () -> new long[1],
+                (count, element) -> count[0]++,
+                (count, element) -> count[0]--,
+                count -> count[0]
+        );
+    }
+
+    public static <T> IncrementalCollector<T, ?, Integer> summingInt(ToIntFunction<? super T> mapper) {
+        return IncrementalCollector.<T, int[], Integer>of(
+                () -> new int[1],
+                (sum, element) -> sum[0] += mapper.applyAsInt(element),
+                (sum, element) -> sum[0] -= mapper.applyAsInt(element),
+                sum -> sum[0]
+        );
+    }
+
+    public static <T> IncrementalCollector<T, ?, Long> summingLong(ToLongFunction<? super T> mapper) {
+        return IncrementalCollector.<T, long[], Long>of(
+                () -> new long[1],
+                (sum, element) -> sum[0] += mapper.applyAsLong(element),
+                (sum, element) -> sum[0] -= mapper.applyAsLong(element),
+                sum -> sum[0]
+        );
+    }
+
+    /**
+     * Uses compensated summation, like {@link java.util.stream.Collectors#summingDouble}, so that a long history
+     * of additions and removals does not drift.
+     */
+    public static <T> IncrementalCollector<T, ?, Double> summingDouble(ToDoubleFunction<? super T> mapper) {
+        return IncrementalCollector.<T, DoubleSum, Double>of(
+                DoubleSum::new,
+                (sum, element) -> sum.add(mapper.applyAsDouble(element)),
+                (sum, element) -> sum.add(-mapper.applyAsDouble(element)),
+                DoubleSum::sum
+        );
+    }
+
+    public static <T> IncrementalCollector<T, ?, Double> averagingInt(ToIntFunction<? super T> mapper) {
+        return averagingLong(element -> mapper.applyAsInt(element));
+    }
+
+    public static <T> IncrementalCollector<T, ?, Double> averagingLong(ToLongFunction<? super T> mapper) {
+        // sum and count
+        return IncrementalCollector.<T, long[], Double>of(
+                () -> new long[2],
+                (state, element) -> {
+                    state[0] += mapper.applyAsLong(element);
+                    state[1]++;
+                },
+                (state, element) -> {
+                    state[0] -= mapper.applyAsLong(element);
+                    state[1]--;
+                },
+                state -> state[1] == 0 ? 0.0d : (double) state[0] / state[1]
+        );
+    }
+
+    public static <T> IncrementalCollector<T, ?, Double> averagingDouble(ToDoubleFunction<? super T> mapper) {
+        return IncrementalCollector.<T, DoubleSum, Double>of(
+                DoubleSum::new,
+                (sum, element) -> {
+                    sum.add(mapper.applyAsDouble(element));
+                    sum.count++;
+                },
+                (sum, element) -> {
+                    sum.add(-mapper.applyAsDouble(element));
+                    sum.count--;
+                },
+                sum -> sum.count == 0 ? 0.0d : sum.sum() / sum.count
+        );
+    }
+
+    /**
+     * Among elements that compare equal, any one may be reported, not necessarily the first added.
+     */
+    public static <T> IncrementalCollector<T, ?, Optional<T>> minBy(Comparator<? super T> comparator) {
+        return IncrementalCollector.<T, LazyHeap<T>, Optional<T>>of(
+                () -> new LazyHeap<>(comparator),
+                LazyHeap::add,
+                LazyHeap::remove,
+                heap -> Optional.ofNullable(heap.peek())
+        );
+    }
+
+    public static <T> IncrementalCollector<T, ?, Optional<T>> maxBy(Comparator<? super T> comparator) {
+        return minBy(comparator.reversed());
+    }
+
+    /**
+     * Keeps the count and the sum invertible and the minimum and maximum in two heaps of values.
+     */
+    public static <T> IncrementalCollector<T, ?, IntSummaryStatistics> summarizingInt(ToIntFunction<? super T> mapper) {
+        return IncrementalCollector.<T, Summary<Integer>, IntSummaryStatistics>of(
+                Summary::new,
+                (summary, element) -> summary.add(mapper.applyAsInt(element)),
+                (summary, element) -> summary.remove(mapper.applyAsInt(element)),
+                summary -> summary.count == 0 ? new IntSummaryStatistics()
+                        : new IntSummaryStatistics(summary.count, summary.min.peek(), summary.max.peek(), summary.sum)
+        );
+    }
+
+    public static <T> IncrementalCollector<T, ?, LongSummaryStatistics> summarizingLong(ToLongFunction<? super T> mapper) {
+        return IncrementalCollector.<T, Summary<Long>, LongSummaryStatistics>of(
+                Summary::new,
+                (summary, element) -> summary.add(mapper.applyAsLong(element)),
+                (summary, element) -> summary.remove(mapper.applyAsLong(element)),
+                summary -> summary.count == 0 ? new LongSummaryStatistics()
+                        : new LongSummaryStatistics(summary.count, summary.min.peek(), summary.max.peek(), summary.sum)
+        );
+    }
+
+    public static <T, U, A, R> IncrementalCollector<T, ?, R> mapping(Function<? super T, ? extends U> mapper,
+                                                                      IncrementalCollector<? super U, A, R> downstream) {
+        return IncrementalCollector.<T, A, R>of(
+                downstream::create,
+                (container, element) -> downstream.add(container, mapper.apply(element)),
+                (container, element) -> downstream.remove(container, mapper.apply(element)),
+                downstream::finish
+        );
+    }
+
+    public static <T, A, R> IncrementalCollector<T, ?, R> filtering(Predicate<? super T> predicate,
+                                                                   IncrementalCollector<? super T, A, R> downstream) {
+        return IncrementalCollector.<T, A, R>of(
+                downstream::create,
+                (container, element) -> {
+                    if (predicate.test(element)) {
+                        downstream.add(container, element);
+                    }
+                },
+                (container, element) -> {
+                    if (predicate.test(element)) {
+                        downstream.remove(container, element);
+                    }
+                },
+                downstream::finish
+        );
+    }
+
+    public static <T, A1, A2, R1, R2, R> IncrementalCollector<T, ?, R> teeing(IncrementalCollector<? super T, A1, R1> first,
+                                                                                IncrementalCollector<? super T, A2, R2> second,
+                                                                                BiFunction<? super R1, ? super R2, R> merger) {
+        return IncrementalCollector.<T, Tee<A1, A2>, R>of(
+                () -> new Tee<>(first.create(), second.create()),
+                (tee, element) -> {
+                    first.add(tee.first, element);
+                    second.add(tee.second, element);
+                },
+                (tee, element) -> {
+                    first.remove(tee.first, element);
+                    second.remove(tee.second, element);
+                },
+                tee -> merger.apply(first.finish(tee.first), second.finish(tee.second))
+        );
+    }
+
+    private record Tee<A1, A2>(A1 first, A2 second) {}
+
+    /**
+     * Kahan summation, with the plain count of the averaging collector.
+     */
+    private static final class DoubleSum {
+        private double sum;
+        private double compensation;
+        private long count;
+
+        void add(double value) {
+            var corrected = value - compensation;
+            var next = sum + corrected;
+            compensation = (next - sum) - corrected;
+            sum = next;
+        }
+
+        double sum() {
+            return sum;
+        }
+    }
+
+    private static final class Summary<N extends Number & Comparable<? super N>> {
+        private final LazyHeap<N> min = new LazyHeap<>(Comparator.naturalOrder());
+        private final LazyHeap<N> max = new LazyHeap<>(Comparator.reverseOrder());
+        private long count;
+        private long sum;
+
+        void add(N value) {
+            count++;
+            sum += value.longValue();
+            min.add(value);
+            max.add(value);
+        }
+
+        void remove(N value) {
+            count--;
+            sum -= value.longValue();
+            min.remove(value);
+            max.remove(value);
+        }
+    }
+
+    /**
+     * A priority queue whose removals are deferred until the removed element comes to the top. Removals that never
+     * reach the top would pile up, so the heap is rebuilt without them once they make up half of it.
+     */
+    static final class LazyHeap<T> {
+        private final Comparator<? super T> comparator;
+        private PriorityQueue<T> heap;
+        private final Map<T, Integer> removed = new HashMap<>();
+        private int removedCount;
+
+        LazyHeap(Comparator<? super T> comparator) {
+            this.comparator = comparator;
+            this.heap = new PriorityQueue<>(comparator);
+        }
+
+        void add(T element) {
+            // an equal element that is only marked as removed is still in the heap, taking the mark back is enough
+            var marks = removed.get(element);
+            if (marks == null) {
+                heap.add(element);
+                return;
+            }
+            if (marks == 1) {
+                removed.remove(element);
+            } else {
+                removed.put(element, marks - 1);
+            }
+            removedCount--;
+        }
+
+        void remove(T element) {
+            if (element.equals(heap.peek())) {
+                heap.poll();
+                purge();
+            } else {
+                removed.merge(element, 1, Integer::sum);
+                if (++removedCount > heap.size() / 2) {
+                    rebuild();
+                }
+            }
+        }
+
+        T peek() {
+            return heap.peek();
+        }
+
+        /**
+         * @return how many elements the heap holds, including those marked as removed
+         */
+        int size() {
+            return heap.size();
+        }
+
+        private void purge() {
+            T top;
+            while ((top = heap.peek()) != null && removed.containsKey(top)) {
+                heap.poll();
+                unmark(top);
+            }
+        }
+
+        private void rebuild() {
+            var live = new ArrayList<T>(heap.size() - removedCount);
+            for (var element : heap) {
+                if (removed.containsKey(element)) {
+                    unmark(element);
+                } else {
+                    live.add(element);
+                }
+            }
+            heap = new PriorityQueue<>(Math.max(1, live.size()), comparator);
+            heap.addAll(live);
+        }
+
+        private void unmark(T element) {
+            removed.computeIfPresent(element, (e, count) -> count == 1 ? null : count - 1);
+            removedCount--;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package net.toiditimtoi.collection;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of ints in one open-addressing table with linear probing, no boxing and no entry objects.
+ * Zero marks a free slot, so the value zero itself is kept in a flag. The table is at most half full.
+ */
+public final class IntHashSet {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] table;
+    private int mask;
+    private int size;
+    private boolean hasZero;
+
+    public IntHashSet() {
+        this(8);
+    }
+
+    /**
+     * @param expectedSize how many values the set should hold without growing
+     */
+    public IntHashSet(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expectedSize must not be negative: " + expectedSize);
+        }
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * @return true if the value was not in the set yet
+     */
+    public boolean add(int value) {
+        if (value == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        var slot = mix(value) & mask;
+        int current;
+        while ((current = table[slot]) != 0) {
+            if (current == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+        if (++size > table.length >> 1) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value == 0) {
+            return hasZero;
+        }
+        var slot = mix(value) & mask;
+        int current;
+        while ((current = table[slot]) != 0) {
+            if (current == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        if (hasZero) {
+            action.accept(0);
+        }
+        for (var value : table) {
+            if (value != 0) {
+                action.accept(value);
+            }
+        }
+    }
+
+    /**
+     * Copies the values, in no particular order, to {@code target} starting at {@code offset}.
+     *
+     * @return how many values were copied, i.e. the size
+     */
+    public int copyTo(int[] target, int offset) {
+        Arrays.fill(target, offset, offset + size, 0);
+        var next = hasZero ? offset + 1 : offset;
+        for (var value : table) {
+            if (value != 0) {
+                target[next++] = value;
+            }
+        }
+        return size;
+    }
+
+    public int[] toArray() {
+        var values = new int[size];
+        copyTo(values, 0);
+        return values;
+    }
+
+    private void grow() {
+        if (table.length == MAX_CAPACITY) {
+            throw new IllegalStateException("IntHashSet cannot hold more than " + (MAX_CAPACITY >> 1) + " values");
+        }
+        var old = table;
+        allocate(old.length << 1);
+        for (var value : old) {
+            if (value != 0) {
+                var slot = mix(value) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    static int capacityFor(int expectedSize) {
+        var capacity = Long.highestOneBit(Math.max(4L, expectedSize) * 2 - 1) << 1;
+        return (int) Math.min(MAX_CAPACITY, capacity);
+    }
+
+    /**
+     * The finalizer of MurmurHash3, so that neighbouring values do not end up in neighbouring slots.
+     */
+    public static int mix(int value) {
+        var h = value;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
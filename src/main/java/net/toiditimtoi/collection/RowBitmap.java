@@ -0,0 +1,363 @@
+package net.toiditimtoi.collection;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable compressed set of row indices, laid out like a Roaring bitmap.
+ * <p>
+ * Rows are grouped in chunks of 65,536 by their high 16 bits. A chunk holding at most {@value #ARRAY_LIMIT} rows
+ * is stored as a sorted {@code char[]} of its low 16 bits, a fuller chunk as a 8 KiB bitset, and an empty chunk
+ * is not stored at all. AND, OR and ANDNOT work chunk by chunk, word by word when both sides are bitsets.
+ */
+public final class RowBitmap {
+
+    static final int CHUNK_BITS = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    static final int ARRAY_LIMIT = 4096;
+    private static final int WORDS = CHUNK_SIZE / Long.SIZE;
+
+    private static final RowBitmap EMPTY = new RowBitmap(new Container[0]);
+
+    // index = row >>> CHUNK_BITS, null for a chunk without any row
+    private final Container[] chunks;
+    private final int cardinality;
+
+    private RowBitmap(Container[] chunks) {
+        this.chunks = chunks;
+        var count = 0;
+        for (var chunk : chunks) {
+            if (chunk != null) {
+                count += chunk.cardinality();
+            }
+        }
+        this.cardinality = count;
+    }
+
+    public static RowBitmap empty() {
+        return EMPTY;
+    }
+
+    public static RowBitmap of(int... rows) {
+        var sorted = rows.clone();
+        Arrays.sort(sorted);
+        if (sorted.length > 0 && sorted[0] < 0) {
+            throw new IllegalArgumentException("row indices must not be negative: " + sorted[0]);
+        }
+        var chunks = new Container[sorted.length == 0 ? 0 : (sorted[sorted.length - 1] >>> CHUNK_BITS) + 1];
+        int i = 0;
+        while (i < sorted.length) {
+            var chunk = sorted[i] >>> CHUNK_BITS;
+            var bits = new long[WORDS];
+            for (; i < sorted.length && sorted[i] >>> CHUNK_BITS == chunk; i++) {
+                var low = sorted[i] & (CHUNK_SIZE - 1);
+                bits[low >>> 6] |= 1L << low;
+            }
+            chunks[chunk] = Container.fromBits(bits);
+        }
+        return new RowBitmap(chunks);
+    }
+
+    /**
+     * @return the rows in [0, rowCount) that match, evaluating the chunks in parallel
+     */
+    public static RowBitmap matching(int rowCount, IntPredicate predicate) {
+        var chunks = new Container[(int) (((long) rowCount + CHUNK_SIZE - 1) >>> CHUNK_BITS)];
+        IntStream.range(0, chunks.length)
+                .parallel()
+                .forEach(chunk -> {
+                    var base = chunk << CHUNK_BITS;
+                    var end = Math.min(rowCount, base + CHUNK_SIZE);
+                    var bits = new long[WORDS];
+                    for (int row = base; row < end; row++) {
+                        if (predicate.test(row)) {
+                            var low = row - base;
+                            bits[low >>> 6] |= 1L << low;
+                        }
+                    }
+                    chunks[chunk] = Container.fromBits(bits);
+                });
+        return new RowBitmap(chunks);
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int row) {
+        if (row < 0) {
+            return false;
+        }
+        var chunk = row >>> CHUNK_BITS;
+        return chunk < chunks.length && chunks[chunk] != null && chunks[chunk].contains(row & (CHUNK_SIZE - 1));
+    }
+
+    public RowBitmap and(RowBitmap other) {
+        var result = new Container[Math.min(chunks.length, other.chunks.length)];
+        for (int i = 0; i < result.length; i++) {
+            if (chunks[i] != null && other.chunks[i] != null) {
+                result[i] = Container.and(chunks[i], other.chunks[i]);
+            }
+        }
+        return new RowBitmap(result);
+    }
+
+    public RowBitmap or(RowBitmap other) {
+        var result = new Container[Math.max(chunks.length, other.chunks.length)];
+        for (int i = 0; i < result.length; i++) {
+            var left = i < chunks.length ? chunks[i] : null;
+            var right = i < other.chunks.length ? other.chunks[i] : null;
+            result[i] = left == null ? right : right == null ? left : Container.or(left, right);
+        }
+        return new RowBitmap(result);
+    }
+
+    public RowBitmap andNot(RowBitmap other) {
+        var result = chunks.clone();
+        for (int i = 0; i < Math.min(result.length, other.chunks.length); i++) {
+            if (result[i] != null && other.chunks[i] != null) {
+                result[i] = Container.andNot(result[i], other.chunks[i]);
+            }
+        }
+        return new RowBitmap(result);
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i] != null) {
+                chunks[i].forEach(i << CHUNK_BITS, action);
+            }
+        }
+    }
+
+    /**
+     * @return the rows in ascending order; a parallel stream splits along chunks
+     */
+    public IntStream rows() {
+        return IntStream.range(0, chunks.length)
+                .filter(i -> chunks[i] != null)
+                .flatMap(i -> {
+                    var rows = IntStream.builder();
+                    chunks[i].forEach(i << CHUNK_BITS, rows);
+                    return rows.build();
+                });
+    }
+
+    public int[] toArray() {
+        var rows = new int[cardinality];
+        var index = new int[1];
+        forEach(row -> rows[index[0]++] = row);
+        return rows;
+    }
+
+    /**
+     * @return an estimate of the heap used by the containers
+     */
+    public long sizeInBytes() {
+        long bytes = 16L + 8L * chunks.length;
+        for (var chunk : chunks) {
+            if (chunk != null) {
+                bytes += chunk.sizeInBytes();
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RowBitmap other && cardinality == other.cardinality && Arrays.equals(toArray(), other.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return "RowBitmap[cardinality=" + cardinality + ", bytes=" + sizeInBytes() + "]";
+    }
+
+    /**
+     * The rows of one chunk, as low 16-bit values.
+     */
+    private abstract static class Container {
+        abstract int cardinality();
+
+        abstract boolean contains(int low);
+
+        abstract void forEach(int base, IntConsumer action);
+
+        abstract long[] toBits();
+
+        abstract long sizeInBytes();
+
+        /**
+         * @return the smaller representation of the bits, or null if no bit is set
+         */
+        static Container fromBits(long[] bits) {
+            var cardinality = 0;
+            for (var word : bits) {
+                cardinality += Long.bitCount(word);
+            }
+            if (cardinality == 0) {
+                return null;
+            }
+            if (cardinality > ARRAY_LIMIT) {
+                return new BitsetContainer(bits, cardinality);
+            }
+            var values = new char[cardinality];
+            var size = 0;
+            for (int w = 0; w < bits.length; w++) {
+                var word = bits[w];
+                while (word != 0) {
+                    values[size++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values);
+        }
+
+        static Container and(Container a, Container b) {
+            if (a instanceof BitsetContainer left && b instanceof BitsetContainer right) {
+                var bits = new long[WORDS];
+                for (int w = 0; w < WORDS; w++) {
+                    bits[w] = left.bits[w] & right.bits[w];
+                }
+                return fromBits(bits);
+            }
+            // probe the array side, the result is never larger than it
+            var array = (ArrayContainer) (a instanceof ArrayContainer ? a : b);
+            var other = array == a ? b : a;
+            return array.filter(other::contains);
+        }
+
+        static Container or(Container a, Container b) {
+            var bits = a.toBits();
+            if (b instanceof BitsetContainer right) {
+                for (int w = 0; w < WORDS; w++) {
+                    bits[w] |= right.bits[w];
+                }
+            } else {
+                for (var low : ((ArrayContainer) b).values) {
+                    bits[low >>> 6] |= 1L << low;
+                }
+            }
+            return fromBits(bits);
+        }
+
+        static Container andNot(Container a, Container b) {
+            if (a instanceof ArrayContainer array) {
+                return array.filter(low -> !b.contains(low));
+            }
+            var bits = a.toBits();
+            if (b instanceof BitsetContainer right) {
+                for (int w = 0; w < WORDS; w++) {
+                    bits[w] &= ~right.bits[w];
+                }
+            } else {
+                for (var low : ((ArrayContainer) b).values) {
+                    bits[low >>> 6] &= ~(1L << low);
+                }
+            }
+            return fromBits(bits);
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        final char[] values;
+
+        ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return Arrays.binarySearch(values, (char) low) >= 0;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (var low : values) {
+                action.accept(base + low);
+            }
+        }
+
+        @Override
+        long[] toBits() {
+            var bits = new long[WORDS];
+            for (var low : values) {
+                bits[low >>> 6] |= 1L << low;
+            }
+            return bits;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 32L + 2L * values.length;
+        }
+
+        Container filter(IntPredicate keep) {
+            var kept = new char[values.length];
+            var size = 0;
+            for (var low : values) {
+                if (keep.test(low)) {
+                    kept[size++] = low;
+                }
+            }
+            return size == 0 ? null : new ArrayContainer(size == kept.length ? kept : Arrays.copyOf(kept, size));
+        }
+    }
+
+    private static final class BitsetContainer extends Container {
+        final long[] bits;
+        final int cardinality;
+
+        BitsetContainer(long[] bits, int cardinality) {
+            this.bits = bits;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return (bits[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int w = 0; w < WORDS; w++) {
+                var word = bits[w];
+                while (word != 0) {
+                    action.accept(base + (w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        long[] toBits() {
+            return bits.clone();
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 32L + 8L * WORDS;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package net.toiditimtoi.collection;
+
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * An immutable sorted set backed by a single sorted array.
+ * Compared to a {@code TreeSet} or a {@code ConcurrentSkipListSet} there is no node per element, so the footprint
+ * is one reference per element. {@link #contains(Object)} is a binary search and the range views share the array.
+ * <p>
+ * Range views are clamped to the range of the set they are taken from instead of throwing for out of range keys.
+ */
+public final class SortedArraySet<E> extends AbstractSet<E> implements SortedSet<E> {
+
+    private final Object[] elements;
+    private final int from;
+    private final int to;
+    private final Comparator<? super E> comparator;
+
+    private SortedArraySet(Object[] elements, int from, int to, Comparator<? super E> comparator) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Wraps an array that is already sorted by the comparator and free of duplicates, without copying it.
+     * The caller must not modify the array afterwards.
+     *
+     * @param comparator the order of the array, or null for the natural ordering
+     */
+    public static <E> SortedArraySet<E> wrapSorted(Object[] sortedDistinct, int length, Comparator<? super E> comparator) {
+        Objects.checkFromIndexSize(0, length, sortedDistinct.length);
+        return new SortedArraySet<>(sortedDistinct, 0, length, comparator);
+    }
+
+    /**
+     * Wraps an array that is already sorted as an immutable list, without copying it.
+     */
+    static <E> List<E> wrapSortedList(Object[] sorted, int length) {
+        Objects.checkFromIndexSize(0, length, sorted.length);
+        return new SortedArrayList<>(sorted, 0, length);
+    }
+
+    @SafeVarargs
+    public static <E extends Comparable<? super E>> SortedArraySet<E> of(E... elements) {
+        return sortDistinct(Arrays.copyOf(elements, elements.length, Object[].class), null);
+    }
+
+    public static <E> SortedArraySet<E> copyOf(Collection<? extends E> source, Comparator<? super E> comparator) {
+        return sortDistinct(source.toArray(), comparator);
+    }
+
+    private static <E> SortedArraySet<E> sortDistinct(Object[] sorted, Comparator<? super E> comparator) {
+        @SuppressWarnings("unchecked")
+        var order = (Comparator<Object>) comparatorOrNatural(comparator);
+        Arrays.sort(sorted, order);
+        var length = 0;
+        for (var element : sorted) {
+            if (length == 0 || order.compare(sorted[length - 1], element) != 0) {
+                sorted[length++] = element;
+            }
+        }
+        return new SortedArraySet<>(sorted, 0, length, comparator);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> Comparator<? super E> comparatorOrNatural(Comparator<? super E> comparator) {
+        return comparator != null ? comparator : (Comparator<? super E>) Comparator.naturalOrder();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * @return the position of the element in this set, or a negative value as in {@link Arrays#binarySearch}
+     */
+    @SuppressWarnings("unchecked")
+    public int indexOf(Object o) {
+        var index = Arrays.binarySearch(elements, from, to, o, (Comparator<Object>) comparatorOrNatural(comparator));
+        return index >= 0 ? index - from : index + from;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size());
+        return (E) elements[from + index];
+    }
+
+    /**
+     * @return a list view of the elements in ascending order
+     */
+    public List<E> asList() {
+        return new SortedArrayList<>(elements, from, to);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return asList().iterator();
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        // an array spliterator reports natural ordering for SORTED, which would make sorted() a no-op on a set
+        // in another order
+        var sorted = comparator == null ? Spliterator.SORTED : 0;
+        return Spliterators.spliterator(elements, from, to,
+                Spliterator.ORDERED | sorted | Spliterator.DISTINCT | Spliterator.IMMUTABLE);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOfRange(elements, from, to);
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public SortedArraySet<E> subSet(E fromElement, E toElement) {
+        if (comparatorOrNatural(comparator).compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SortedArraySet<>(elements, lowerBound(fromElement), lowerBound(toElement), comparator);
+    }
+
+    @Override
+    public SortedArraySet<E> headSet(E toElement) {
+        return new SortedArraySet<>(elements, from, lowerBound(toElement), comparator);
+    }
+
+    @Override
+    public SortedArraySet<E> tailSet(E fromElement) {
+        return new SortedArraySet<>(elements, lowerBound(fromElement), to, comparator);
+    }
+
+    @Override
+    public E first() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return get(0);
+    }
+
+    @Override
+    public E last() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return get(size() - 1);
+    }
+
+    /**
+     * @return the least element greater than or equal to the key, or null if there is none
+     */
+    public E ceiling(E key) {
+        var index = lowerBound(key);
+        return index < to ? get(index - from) : null;
+    }
+
+    /**
+     * @return the greatest element less than or equal to the key, or null if there is none
+     */
+    public E floor(E key) {
+        var index = indexOf(key);
+        if (index >= 0) {
+            return get(index);
+        }
+        var insertion = -index - 1;
+        return insertion > 0 ? get(insertion - 1) : null;
+    }
+
+    // index in the backing array of the first element that is not less than the key
+    @SuppressWarnings("unchecked")
+    private int lowerBound(E key) {
+        var order = (Comparator<Object>) comparatorOrNatural(comparator);
+        int low = from;
+        int high = to;
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (order.compare(elements[mid], key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class SortedArrayList<E> extends AbstractList<E> implements RandomAccess {
+        private final Object[] elements;
+        private final int from;
+        private final int to;
+
+        SortedArrayList(Object[] elements, int from, int to) {
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            Objects.checkIndex(index, to - from);
+            return (E) elements[from + index];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public Spliterator<E> spliterator() {
+            return Spliterators.spliterator(elements, from, to, Spliterator.ORDERED | Spliterator.IMMUTABLE);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package net.toiditimtoi.collection;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collector;
+
+/**
+ * Collectors for sorted results that avoid {@code Collectors.toCollection(ConcurrentSkipListSet::new)}.
+ * <p>
+ * Each parallel segment appends to a plain array. When segments are combined (on the worker threads) each one is
+ * sorted once into a run, and the two runs are merged into one right there, so the merging is spread over the
+ * fork/join tree like the sorting: each element is sorted once and merged once per level of the tree. The finisher
+ * only wraps the last run in a {@link SortedArraySet} or an immutable list, one array slot per element, with no
+ * per-element node or CAS.
+ */
+public final class SortedCollectors {
+
+    private SortedCollectors() {
+    }
+
+    public static <T extends Comparable<? super T>> Collector<T, ?, SortedArraySet<T>> toSortedSet() {
+        return toSortedSet(null);
+    }
+
+    /**
+     * @param comparator the order of the result, or null for the natural ordering
+     */
+    public static <T> Collector<T, ?, SortedArraySet<T>> toSortedSet(Comparator<? super T> comparator) {
+        return Collector.of(
+                () -> new Runs<T>(comparator, true),
+                Runs::add,
+                Runs::combine,
+                runs -> SortedArraySet.wrapSorted(runs.sorted(), runs.length(), comparator),
+                Collector.Characteristics.UNORDERED
+        );
+    }
+
+    public static <T extends Comparable<? super T>> Collector<T, ?, List<T>> toSortedList() {
+        return toSortedList(null);
+    }
+
+    /**
+     * Keeps duplicates. Equal elements keep their encounter order.
+     */
+    public static <T> Collector<T, ?, List<T>> toSortedList(Comparator<? super T> comparator) {
+        return Collector.of(
+                () -> new Runs<T>(comparator, false),
+                Runs::add,
+                Runs::combine,
+                runs -> SortedArraySet.wrapSortedList(runs.sorted(), runs.length())
+        );
+    }
+
+    /**
+     * The sorted run of the segments combined so far, plus the unsorted buffer of the current segment.
+     */
+    static final class Runs<T> {
+        private static final int INITIAL_CAPACITY = 16;
+        private static final Object[] EMPTY = {};
+
+        private final Comparator<Object> order;
+        private final boolean distinct;
+        private Object[] run = EMPTY;
+        private int runLength;
+        private Object[] buffer = new Object[INITIAL_CAPACITY];
+        private int bufferSize;
+
+        @SuppressWarnings("unchecked")
+        Runs(Comparator<? super T> comparator, boolean distinct) {
+            this.order = (Comparator<Object>) SortedArraySet.comparatorOrNatural(comparator);
+            this.distinct = distinct;
+        }
+
+        void add(T element) {
+            if (bufferSize == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[bufferSize++] = element;
+        }
+
+        Runs<T> combine(Runs<T> other) {
+            seal();
+            other.seal();
+            append(other.run, other.runLength);
+            return this;
+        }
+
+        /**
+         * @return the sorted elements, the first {@link #length()} slots of the array
+         */
+        Object[] sorted() {
+            seal();
+            return run;
+        }
+
+        int length() {
+            return runLength;
+        }
+
+        private void seal() {
+            if (bufferSize == 0) {
+                return;
+            }
+            Arrays.sort(buffer, 0, bufferSize, order);
+            var length = distinct ? dropAdjacentDuplicates(buffer, bufferSize) : bufferSize;
+            var sorted = buffer;
+            buffer = new Object[INITIAL_CAPACITY];
+            bufferSize = 0;
+            append(sorted, length);
+        }
+
+        private int dropAdjacentDuplicates(Object[] sorted, int size) {
+            var length = 0;
+            for (int i = 0; i < size; i++) {
+                if (length == 0 || order.compare(sorted[length - 1], sorted[i]) != 0) {
+                    sorted[length++] = sorted[i];
+                }
+            }
+            return length;
+        }
+
+        /**
+         * Merges a run that comes after this one in encounter order into it. Ties take the element of this run
+         * first, which keeps the merge stable.
+         */
+        private void append(Object[] later, int laterLength) {
+            if (laterLength == 0) {
+                return;
+            }
+            if (runLength == 0) {
+                run = later;
+                runLength = laterLength;
+                return;
+            }
+            var merged = new Object[runLength + laterLength];
+            int i = 0, j = 0, length = 0;
+            while (i < runLength && j < laterLength) {
+                var next = order.compare(later[j], run[i]) < 0 ? later[j++] : run[i++];
+                if (!distinct || length == 0 || order.compare(merged[length - 1], next) != 0) {
+                    merged[length++] = next;
+                }
+            }
+            while (i < runLength) {
+                var next = run[i++];
+                if (!distinct || order.compare(merged[length - 1], next) != 0) {
+                    merged[length++] = next;
+                }
+            }
+            while (j < laterLength) {
+                var next = later[j++];
+                if (!distinct || order.compare(merged[length - 1], next) != 0) {
+                    merged[length++] = next;
+                }
+            }
+            run = merged;
+            runLength = length;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package net.toiditimtoi.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a container written by {@link BlockContainerWriter}.
+ * <p>
+ * Opening reads only the footer. Blocks are then read with positional reads, which do not move a shared file
+ * pointer, so any number of threads can decompress blocks of the same reader at once. {@link #stream} splits
+ * along block boundaries: in a parallel stream every thread inflates and deserializes whole blocks of its own.
+ * Records go through the {@link DeserializationFrontEnd}, so the allowlist and the class cache apply to them
+ * as to any other stream it opens, with its limits on references and stream bytes applied to each record.
+ * <pre>{@code
+ * try (var reader = BlockContainerReader.open(path, frontEnd)) {
+ *     var populationByArea = reader.stream(City.class).parallel()
+ *             .collect(Collectors.groupingBy(City::area, Collectors.summingLong(City::population)));
+ * }
+ * }</pre>
+ */
+public class BlockContainerReader implements Closeable {
+
+    /**
+     * Where a block is and what it holds; {@code firstRecord} is the index in the container of its first record.
+     */
+    public record Block(long offset, int compressedLength, int uncompressedLength, int records, int checksum,
+                        long firstRecord) {
+    }
+
+    private final FileChannel channel;
+    private final DeserializationFrontEnd frontEnd;
+    private final Block[] blocks;
+    private final long records;
+
+    private BlockContainerReader(FileChannel channel, DeserializationFrontEnd frontEnd, Block[] blocks, long records) {
+        this.channel = channel;
+        this.frontEnd = frontEnd;
+        this.blocks = blocks;
+        this.records = records;
+    }
+
+    public static BlockContainerReader open(Path path, DeserializationFrontEnd frontEnd) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            var size = channel.size();
+            if (size < Integer.BYTES + BlockContainerWriter.TRAILER_BYTES
+                    || readFully(channel, 0, Integer.BYTES).getInt() != BlockContainerWriter.MAGIC) {
+                throw new StreamCorruptedException(path + " is not a block container");
+            }
+            var trailer = readFully(channel, size - BlockContainerWriter.TRAILER_BYTES, BlockContainerWriter.TRAILER_BYTES);
+            int blockCount = trailer.getInt();
+            long indexOffset = trailer.getLong();
+            long records = trailer.getLong();
+            if (trailer.getInt() != BlockContainerWriter.MAGIC || blockCount < 0 || indexOffset < Integer.BYTES
+                    || (long) blockCount * BlockContainerWriter.INDEX_ENTRY_BYTES > Integer.MAX_VALUE
+                    || indexOffset + (long) blockCount * BlockContainerWriter.INDEX_ENTRY_BYTES
+                    != size - BlockContainerWriter.TRAILER_BYTES) {
+                throw new StreamCorruptedException(path + " has no valid block index, it may be truncated");
+            }
+            var index = readFully(channel, indexOffset, blockCount * BlockContainerWriter.INDEX_ENTRY_BYTES);
+            var blocks = new Block[blockCount];
+            long firstRecord = 0;
+            long nextOffset = Integer.BYTES;
+            for (int i = 0; i < blockCount; i++) {
+                blocks[i] = new Block(index.getLong(), index.getInt(), index.getInt(), index.getInt(), index.getInt(), firstRecord);
+                checkBlock(path, i, blocks[i], nextOffset);
+                nextOffset += blocks[i].compressedLength();
+                firstRecord += blocks[i].records();
+            }
+            if (nextOffset != indexOffset) {
+                throw new StreamCorruptedException(path + " has " + (indexOffset - nextOffset) + " bytes between its blocks and its index");
+            }
+            if (firstRecord != records) {
+                throw new StreamCorruptedException(path + " counts " + records + " records but its blocks hold " + firstRecord);
+            }
+            return new BlockContainerReader(channel, frontEnd, blocks, records);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The index is not trusted any more than the blocks: blocks must follow each other from the header to the index,
+     * and claim no more bytes and records than their compressed size can hold, so that a forged entry cannot make
+     * the reader allocate more than that.
+     */
+    private static void checkBlock(Path path, int index, Block block, long expectedOffset) throws StreamCorruptedException {
+        if (block.offset() != expectedOffset
+                || block.compressedLength() <= 0
+                || block.uncompressedLength() <= 0
+                || block.uncompressedLength() > BlockContainerWriter.MAX_BLOCK_BYTES
+                || block.uncompressedLength() > (long) block.compressedLength() * BlockContainerWriter.MAX_COMPRESSION_RATIO
+                || block.records() <= 0
+                || block.records() > block.uncompressedLength()) {
+            throw new StreamCorruptedException(path + " has an invalid index entry for block " + index + ": " + block);
+        }
+    }
+
+    public long records() {
+        return records;
+    }
+
+    public List<Block> blocks() {
+        return Collections.unmodifiableList(Arrays.asList(blocks));
+    }
+
+    /**
+     * @return the index of the block that holds the record, to start reading from it
+     */
+    public int blockOf(long record) {
+        if (record < 0 || record >= records) {
+            throw new IndexOutOfBoundsException("record " + record + " out of " + records);
+        }
+        int low = 0, high = blocks.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blocks[mid].firstRecord() <= record) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Reads and decompresses one block. Safe to call from several threads at once.
+     *
+     * @throws StreamCorruptedException if the block does not match its checksum
+     */
+    public <T> List<T> readBlock(int index, Class<T> type) throws IOException, ClassNotFoundException {
+        var block = blocks[index];
+        var compressed = readFully(channel, block.offset(), block.compressedLength());
+        var bytes = new byte[block.uncompressedLength()];
+        var inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < bytes.length && !inflater.finished()) {
+                var inflated = inflater.inflate(bytes, length, bytes.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != bytes.length) {
+                throw new StreamCorruptedException("block " + index + " inflates to " + length + " bytes instead of " + bytes.length);
+            }
+        } catch (DataFormatException e) {
+            throw new StreamCorruptedException("block " + index + " is not valid deflate data: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        var crc = new CRC32();
+        crc.update(bytes);
+        if ((int) crc.getValue() != block.checksum()) {
+            throw new StreamCorruptedException("block " + index + " does not match its checksum");
+        }
+
+        var result = new ArrayList<T>(block.records());
+        var count = frontEnd.readAll(new ByteArrayInputStream(bytes), type, result::add);
+        if (count != block.records()) {
+            throw new StreamCorruptedException("block " + index + " holds " + count + " records instead of " + block.records());
+        }
+        return result;
+    }
+
+    /**
+     * All the records in order, sequential until {@code parallel()} is called. The stream reads from this reader,
+     * close the reader once the stream is consumed. Read failures are thrown as {@link UncheckedIOException}.
+     */
+    public <T> Stream<T> stream(Class<T> type) {
+        return stream(type, 0);
+    }
+
+    /**
+     * The records from {@code fromBlock} on.
+     */
+    public <T> Stream<T> stream(Class<T> type, int fromBlock) {
+        if (fromBlock < 0 || fromBlock > blocks.length) {
+            throw new IndexOutOfBoundsException("block " + fromBlock + " out of " + blocks.length);
+        }
+        return StreamSupport.stream(new BlockSpliterator<>(type, fromBlock, blocks.length), false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("container ends at " + (position + buffer.position()) + ", expected " + (position + length));
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * The records of the blocks {@code [nextBlock, endBlock)}, loaded a block at a time.
+     */
+    private final class BlockSpliterator<T> implements Spliterator<T> {
+        private final Class<T> type;
+        private int nextBlock;
+        private final int endBlock;
+        private List<T> current = List.of();
+        private int currentIndex;
+
+        BlockSpliterator(Class<T> type, int fromBlock, int toBlock) {
+            this.type = type;
+            this.nextBlock = fromBlock;
+            this.endBlock = toBlock;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (currentIndex == current.size()) {
+                if (nextBlock == endBlock) {
+                    return false;
+                }
+                load();
+            }
+            action.accept(current.get(currentIndex++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            while (true) {
+                for (; currentIndex < current.size(); currentIndex++) {
+                    action.accept(current.get(currentIndex));
+                }
+                if (nextBlock == endBlock) {
+                    return;
+                }
+                load();
+            }
+        }
+
+        private void load() {
+            try {
+                current = readBlock(nextBlock++, type);
+                currentIndex = 0;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                var unknown = new InvalidClassException(e.getMessage());
+                unknown.initCause(e);
+                throw new UncheckedIOException(unknown);
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (endBlock - nextBlock < 2) {
+                return null;
+            }
+            int mid = (nextBlock + endBlock) >>> 1;
+            var prefix = new BlockSpliterator<>(type, nextBlock, mid);
+            prefix.current = current;
+            prefix.currentIndex = currentIndex;
+            current = List.of();
+            currentIndex = 0;
+            nextBlock = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            var end = endBlock == blocks.length ? records : blocks[endBlock].firstRecord();
+            var next = nextBlock == blocks.length ? records : blocks[nextBlock].firstRecord();
+            return end - next + current.size() - currentIndex;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package net.toiditimtoi.serialization;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes serialized records into a block-compressed container, the format read by {@link BlockContainerReader}.
+ * <p>
+ * Records are serialized into blocks of about {@code blockBytes} uncompressed bytes. Each block is a complete
+ * {@link ObjectOutputStream} of its own, compressed on its own with {@link Deflater}, so any block can be read
+ * without the ones before it. The index of the blocks goes in a footer at the end of the file:
+ * <pre>
+ * "JCB1"  block 0 ... block n-1
+ * index:   n * (offset: long, compressed: int, uncompressed: int, records: int, crc32: int)
+ * trailer: blocks: int, index offset: long, records: long, "JCB1"
+ * </pre>
+ * Class descriptors are written again in every block, which costs little after compression: serialized records
+ * are repetitive, and a block of them shrinks several times even at {@link Deflater#BEST_SPEED}.
+ * <pre>{@code
+ * try (var writer = new BlockContainerWriter(Files.newOutputStream(path))) {
+ *     for (var city : cities) {
+ *         writer.write(city);
+ *     }
+ * }
+ * }</pre>
+ */
+public class BlockContainerWriter implements Closeable {
+
+    static final int MAGIC = 0x4A434231;
+    static final int INDEX_ENTRY_BYTES = Long.BYTES + 4 * Integer.BYTES;
+    static final int TRAILER_BYTES = Integer.BYTES + 2 * Long.BYTES + Integer.BYTES;
+    public static final int DEFAULT_BLOCK_BYTES = 64 * 1024;
+    /**
+     * The largest uncompressed block a reader accepts, so that a forged index cannot make it allocate more.
+     */
+    public static final int MAX_BLOCK_BYTES = 64 * 1024 * 1024;
+    // deflate cannot compress better than about 1032:1
+    static final int MAX_COMPRESSION_RATIO = 1032;
+
+    private final DataOutputStream out;
+    private final int blockBytes;
+    private final Deflater deflater;
+    private final byte[] deflated = new byte[64 * 1024];
+    private final List<BlockContainerReader.Block> blocks = new ArrayList<>();
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+    private ObjectOutputStream blockRecords;
+    private int recordsInBlock;
+    private long position;
+    private long records;
+    private boolean closed;
+
+    public BlockContainerWriter(OutputStream out) throws IOException {
+        this(out, DEFAULT_BLOCK_BYTES, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param blockBytes the uncompressed size after which a block is closed, a record never spans two blocks
+     *                   and a block cannot grow beyond {@link #MAX_BLOCK_BYTES}
+     * @param level      a {@link Deflater} compression level
+     */
+    public BlockContainerWriter(OutputStream out, int blockBytes, int level) throws IOException {
+        if (blockBytes <= 0 || blockBytes > MAX_BLOCK_BYTES) {
+            throw new IllegalArgumentException("blockBytes must be between 1 and " + MAX_BLOCK_BYTES + ": " + blockBytes);
+        }
+        this.deflater = new Deflater(level, true);
+        this.blockBytes = blockBytes;
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.out.writeInt(MAGIC);
+        position = Integer.BYTES;
+    }
+
+    public void write(Object record) throws IOException {
+        if (closed) {
+            throw new IOException("container closed");
+        }
+        if (blockRecords == null) {
+            blockRecords = new ObjectOutputStream(block);
+        }
+        blockRecords.writeObject(record);
+        recordsInBlock++;
+        records++;
+        // the object stream buffers at most 1 KiB, close enough to decide on a block boundary
+        if (block.size() >= blockBytes) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * Closes the current block early, e.g. to start a new one at a natural boundary of the data.
+     */
+    public void flushBlock() throws IOException {
+        if (blockRecords == null) {
+            return;
+        }
+        blockRecords.close();
+        blockRecords = null;
+        var bytes = block.toByteArray();
+        block.reset();
+        if (bytes.length > MAX_BLOCK_BYTES) {
+            throw new IOException("block of " + bytes.length + " bytes is larger than " + MAX_BLOCK_BYTES
+                    + ", a record that large cannot be read back");
+        }
+
+        var crc = new CRC32();
+        crc.update(bytes);
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+        int compressed = 0;
+        while (!deflater.finished()) {
+            var length = deflater.deflate(deflated);
+            out.write(deflated, 0, length);
+            compressed += length;
+        }
+        blocks.add(new BlockContainerReader.Block(position, compressed, bytes.length, recordsInBlock,
+                (int) crc.getValue(), records - recordsInBlock));
+        position += compressed;
+        recordsInBlock = 0;
+    }
+
+    public long records() {
+        return records;
+    }
+
+    /**
+     * @return how many blocks have been written so far
+     */
+    public int blocks() {
+        return blocks.size();
+    }
+
+    /**
+     * Writes the last block and the index, and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flushBlock();
+            closed = true;
+            var indexOffset = position;
+            for (var written : blocks) {
+                out.writeLong(written.offset());
+                out.writeInt(written.compressedLength());
+                out.writeInt(written.uncompressedLength());
+                out.writeInt(written.records());
+                out.writeInt(written.checksum());
+            }
+            out.writeInt(blocks.size());
+            out.writeLong(indexOffset);
+            out.writeLong(records);
+            out.writeInt(MAGIC);
+        } finally {
+            closed = true;
+            deflater.end();
+            out.close();
+        }
+    }
+}
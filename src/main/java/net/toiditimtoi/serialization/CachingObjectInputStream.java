@@ -0,0 +1,39 @@
+package net.toiditimtoi.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+
+/**
+ * An {@link ObjectInputStream} that resolves classes through a shared {@link ClassDescriptorCache}
+ * and is guarded by a filter from the moment it is created.
+ */
+public class CachingObjectInputStream extends ObjectInputStream {
+
+    private final ClassDescriptorCache cache;
+
+    public CachingObjectInputStream(InputStream in, ClassDescriptorCache cache, ObjectInputFilter filter) throws IOException {
+        super(in);
+        this.cache = cache;
+        setObjectInputFilter(filter);
+    }
+
+    /**
+     * Reads the next top-level object. Under a filter from {@link SerialAllowlist} that counts per message, the
+     * reference and byte limits start over with it; otherwise this is {@link #readObject()}.
+     */
+    public Object readMessage() throws IOException, ClassNotFoundException {
+        if (getObjectInputFilter() instanceof SerialAllowlist.MessageFilter messages) {
+            messages.startMessage();
+        }
+        return readObject();
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+        var type = cache.resolve(desc.getName());
+        return type != null ? type : super.resolveClass(desc);
+    }
+}
@@ -0,0 +1,53 @@
+package net.toiditimtoi.serialization;
+
+import java.io.ObjectStreamClass;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolved classes shared by every stream opened through the same {@link DeserializationFrontEnd}.
+ * A plain {@link java.io.ObjectInputStream} calls {@code Class.forName} with a stack walk to find the
+ * "latest user defined loader" for each new descriptor of each new stream. Here a class name is resolved once
+ * against a fixed loader and every later stream gets it from the map.
+ */
+public final class ClassDescriptorCache {
+
+    private final ClassLoader loader;
+    private final ConcurrentHashMap<String, Class<?>> resolved = new ConcurrentHashMap<>();
+
+    public ClassDescriptorCache(ClassLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * @return the cached class, or null when the name cannot be found by this cache's loader (primitive type
+     * names for example), in which case the caller should fall back to the default resolution
+     */
+    public Class<?> resolve(String className) {
+        var type = resolved.get(className);
+        if (type != null) {
+            return type;
+        }
+        try {
+            type = Class.forName(className, false, loader);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        var previous = resolved.putIfAbsent(className, type);
+        return previous != null ? previous : type;
+    }
+
+    /**
+     * Resolves the classes and their serialization descriptors up front, so that the first stream does not pay for
+     * the reflection on {@code serialVersionUID}, fields and constructors.
+     */
+    public void preload(Class<?>... types) {
+        for (var type : types) {
+            resolved.putIfAbsent(type.getName(), type);
+            ObjectStreamClass.lookup(type);
+        }
+    }
+
+    public int size() {
+        return resolved.size();
+    }
+}
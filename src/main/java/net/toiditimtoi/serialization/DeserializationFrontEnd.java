@@ -0,0 +1,85 @@
+package net.toiditimtoi.serialization;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.util.function.Consumer;
+
+/**
+ * Entry point for reading many small serialized messages.
+ * The class cache and the allowlist are created once and shared by every stream opened here,
+ * so opening a stream costs no more than reading its header. The allowlist limits on references and stream bytes
+ * apply to each message read with {@link CachingObjectInputStream#readMessage()}, not to the stream as a whole.
+ *
+ * <pre>{@code
+ * var frontEnd = new DeserializationFrontEnd(SerialAllowlist.builder()
+ *         .allowPackage("net.toiditimtoi")
+ *         .allowClass(String.class, Long.class, Number.class)
+ *         .build());
+ * try (var in = frontEnd.open(new FileInputStream("kevin.ser"))) {
+ *     var person = in.readMessage();
+ * }
+ * }</pre>
+ */
+public class DeserializationFrontEnd {
+
+    private final SerialAllowlist filter;
+    private final ClassDescriptorCache cache;
+
+    public DeserializationFrontEnd(SerialAllowlist filter) {
+        this(filter, new ClassDescriptorCache(DeserializationFrontEnd.class.getClassLoader()));
+    }
+
+    public DeserializationFrontEnd(SerialAllowlist filter, ClassDescriptorCache cache) {
+        this.filter = filter;
+        this.cache = cache;
+    }
+
+    public CachingObjectInputStream open(InputStream in) throws IOException {
+        var buffered = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+        return new CachingObjectInputStream(buffered, cache, filter.perMessage());
+    }
+
+    /**
+     * Reads a stream that holds a single object of the expected type.
+     */
+    public <T> T readObject(InputStream in, Class<T> type) throws IOException, ClassNotFoundException {
+        try (var ois = open(in)) {
+            return checkType(ois.readMessage(), type);
+        }
+    }
+
+    /**
+     * Reads every object of the stream until the end of the stream is reached.
+     *
+     * @return the number of objects handed to the consumer
+     */
+    public <T> long readAll(InputStream in, Class<T> type, Consumer<? super T> consumer) throws IOException, ClassNotFoundException {
+        long count = 0;
+        try (var ois = open(in)) {
+            while (true) {
+                Object next;
+                try {
+                    next = ois.readMessage();
+                } catch (EOFException endOfStream) {
+                    return count;
+                }
+                consumer.accept(checkType(next, type));
+                count++;
+            }
+        }
+    }
+
+    public ClassDescriptorCache cache() {
+        return cache;
+    }
+
+    private static <T> T checkType(Object value, Class<T> type) throws InvalidClassException {
+        if (value != null && !type.isInstance(value)) {
+            throw new InvalidClassException(value.getClass().getName(), "expected an instance of " + type.getName());
+        }
+        return type.cast(value);
+    }
+}
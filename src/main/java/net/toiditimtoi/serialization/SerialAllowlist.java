@@ -0,0 +1,171 @@
+package net.toiditimtoi.serialization;
+
+import java.io.ObjectInputFilter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An allowlist {@link ObjectInputFilter} that is built once and shared by every stream.
+ * Classes are either listed explicitly or matched by package prefix, everything else is rejected.
+ * The verdict for each class is memoized in a {@link ClassValue}, so after warm-up the per-object check is a
+ * handful of integer comparisons plus one lookup.
+ * Depth, reference count, array length and stream size are checked before the class, so a hostile payload is
+ * rejected as soon as it crosses a limit, without resolving anything else.
+ * <p>
+ * Installed directly on a stream, the reference and byte limits count from the start of the stream, as the JDK
+ * reports them. Streams opened by {@link DeserializationFrontEnd} count them per message instead, from each
+ * top-level {@link CachingObjectInputStream#readMessage()} on, so that a stream of millions of small records stays
+ * under the limits as long as each record does.
+ */
+public final class SerialAllowlist implements ObjectInputFilter {
+
+    private final Set<String> classNames;
+    private final String[] packagePrefixes;
+    private final long maxDepth;
+    private final long maxReferences;
+    private final long maxArrayLength;
+    private final long maxStreamBytes;
+
+    private final ClassValue<Status> verdicts = new ClassValue<>() {
+        @Override
+        protected Status computeValue(Class<?> type) {
+            return decide(type);
+        }
+    };
+
+    private SerialAllowlist(Builder builder) {
+        this.classNames = Set.copyOf(builder.classNames);
+        this.packagePrefixes = builder.packagePrefixes.toArray(String[]::new);
+        this.maxDepth = builder.maxDepth;
+        this.maxReferences = builder.maxReferences;
+        this.maxArrayLength = builder.maxArrayLength;
+        this.maxStreamBytes = builder.maxStreamBytes;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Status checkInput(FilterInfo info) {
+        return check(info, 0, 0);
+    }
+
+    /**
+     * @return a filter for a single stream that counts references and stream bytes per message
+     */
+    MessageFilter perMessage() {
+        return new MessageFilter();
+    }
+
+    private Status check(FilterInfo info, long referencesBefore, long bytesBefore) {
+        if (info.depth() > maxDepth
+                || info.references() - referencesBefore > maxReferences
+                || info.streamBytes() - bytesBefore > maxStreamBytes
+                || info.arrayLength() > maxArrayLength) {
+            return Status.REJECTED;
+        }
+        var type = info.serialClass();
+        // a null class means the callback only reports limits (e.g. a back reference), which were fine
+        return type == null ? Status.UNDECIDED : verdicts.get(type);
+    }
+
+    private Status decide(Class<?> type) {
+        // an array is as safe as the type of its elements
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive() || classNames.contains(type.getName())) {
+            return Status.ALLOWED;
+        }
+        var name = type.getName();
+        for (var prefix : packagePrefixes) {
+            if (name.startsWith(prefix)) {
+                return Status.ALLOWED;
+            }
+        }
+        return Status.REJECTED;
+    }
+
+    /**
+     * Takes the counts of the last check as the start of the next message. The handles and bytes read after that
+     * check are charged to the next message, which only makes the limits slightly stricter.
+     */
+    final class MessageFilter implements ObjectInputFilter {
+        private long references;
+        private long streamBytes;
+        private long referencesBefore;
+        private long bytesBefore;
+
+        void startMessage() {
+            referencesBefore = references;
+            bytesBefore = streamBytes;
+        }
+
+        @Override
+        public Status checkInput(FilterInfo info) {
+            references = info.references();
+            streamBytes = info.streamBytes();
+            return check(info, referencesBefore, bytesBefore);
+        }
+    }
+
+    public static final class Builder {
+        private final Set<String> classNames = new HashSet<>();
+        private final List<String> packagePrefixes = new ArrayList<>();
+        private long maxDepth = 20;
+        private long maxReferences = 10_000;
+        private long maxArrayLength = 100_000;
+        private long maxStreamBytes = 10L * 1024 * 1024;
+
+        private Builder() {
+        }
+
+        public Builder allowClass(Class<?>... types) {
+            for (var type : types) {
+                classNames.add(type.getName());
+            }
+            return this;
+        }
+
+        /**
+         * Allows every class of the given package and its sub-packages, e.g. {@code "net.toiditimtoi"}.
+         */
+        public Builder allowPackage(String packageName) {
+            packagePrefixes.add(packageName.endsWith(".") ? packageName : packageName + ".");
+            return this;
+        }
+
+        public Builder maxDepth(long maxDepth) {
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * The number of object handles a message may create, 10,000 by default.
+         */
+        public Builder maxReferences(long maxReferences) {
+            this.maxReferences = maxReferences;
+            return this;
+        }
+
+        public Builder maxArrayLength(long maxArrayLength) {
+            this.maxArrayLength = maxArrayLength;
+            return this;
+        }
+
+        /**
+         * The number of bytes a message may span, 10 MiB by default.
+         */
+        public Builder maxStreamBytes(long maxStreamBytes) {
+            this.maxStreamBytes = maxStreamBytes;
+            return this;
+        }
+
+        public SerialAllowlist build() {
+            return new SerialAllowlist(this);
+        }
+    }
+}
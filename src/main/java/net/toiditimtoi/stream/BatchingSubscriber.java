@@ -0,0 +1,189 @@
+package net.toiditimtoi.stream;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * The asynchronous boundary of a {@link FlowPipeline}: buffers what the source sends, up to the demand it signalled,
+ * and drains the buffer batch by batch through the operator chain on the executor.
+ * <p>
+ * At most one drain task runs at a time, {@code work} counts the signals that arrived meanwhile so that
+ * none is lost between the last look at the buffer and the end of the task.
+ */
+final class BatchingSubscriber<T> implements Flow.Subscriber<Object> {
+
+    /**
+     * The end of an operator chain.
+     */
+    interface Terminal<T> extends Consumer<T> {
+
+        default void beginBatch() {
+        }
+
+        default void endBatch() {
+        }
+
+        void complete();
+
+        void fail(Throwable error);
+    }
+
+    private final Consumer<Object> chain;
+    private final Terminal<T> terminal;
+    private final Executor executor;
+    private final int bufferSize;
+    private final int batchSize;
+    // demand is replenished once three quarters of the buffer were consumed
+    private final int replenishLimit;
+    private final ArrayBlockingQueue<Object> buffer;
+    private final ArrayList<Object> batch;
+    private final AtomicInteger work = new AtomicInteger();
+
+    private volatile Flow.Subscription subscription;
+    private volatile boolean done;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+    // only touched by the drain task
+    private int consumed;
+    private boolean terminated;
+
+    BatchingSubscriber(Consumer<Object> chain, Terminal<T> terminal, Executor executor, int bufferSize, int batchSize) {
+        this.chain = chain;
+        this.terminal = terminal;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.batchSize = batchSize;
+        this.replenishLimit = Math.max(1, bufferSize - (bufferSize >> 2));
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null || cancelled) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(bufferSize);
+    }
+
+    @Override
+    public void onNext(Object item) {
+        if (done || cancelled) {
+            return;
+        }
+        if (!buffer.offer(item)) {
+            subscription.cancel();
+            onError(new IllegalStateException("source sent more than the " + bufferSize + " elements requested"));
+            return;
+        }
+        schedule();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (done) {
+            return;
+        }
+        error = throwable;
+        done = true;
+        schedule();
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        schedule();
+    }
+
+    void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            var current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (work.getAndIncrement() == 0) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                cancel();
+                terminate(e);
+            }
+        }
+    }
+
+    private void drain() {
+        var missed = 1;
+        do {
+            while (!terminated) {
+                if (cancelled) {
+                    buffer.clear();
+                    break;
+                }
+                // read done before the buffer, everything sent before the completion is in the buffer by then
+                var finished = done;
+                buffer.drainTo(batch, batchSize);
+                if (batch.isEmpty()) {
+                    if (finished) {
+                        terminate(error);
+                    }
+                    break;
+                }
+                if (!process()) {
+                    break;
+                }
+            }
+            missed = work.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private boolean process() {
+        try {
+            terminal.beginBatch();
+            try {
+                for (var element : batch) {
+                    chain.accept(element);
+                }
+            } finally {
+                terminal.endBatch();
+            }
+        } catch (Throwable e) {
+            batch.clear();
+            cancel();
+            terminate(e);
+            return false;
+        }
+        consumed += batch.size();
+        batch.clear();
+        if (consumed >= replenishLimit) {
+            var replenished = consumed;
+            consumed = 0;
+            subscription.request(replenished);
+        }
+        return true;
+    }
+
+    private void terminate(Throwable failure) {
+        if (terminated) {
+            return;
+        }
+        terminated = true;
+        if (failure == null) {
+            terminal.complete();
+        } else {
+            terminal.fail(failure);
+        }
+    }
+}
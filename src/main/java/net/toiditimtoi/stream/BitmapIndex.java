@@ -0,0 +1,112 @@
+package net.toiditimtoi.stream;
+
+import net.toiditimtoi.collection.RowBitmap;
+
+import java.util.Arrays;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Predicate evaluation over a fixed, indexed dataset that yields {@link RowBitmap}s instead of collections.
+ * <p>
+ * {@code Collectors.partitioningBy} materializes a full list or set per side, for every predicate, every time.
+ * Here a predicate is evaluated once into a bitmap of matching row indices; combining predicates is then
+ * AND/OR/ANDNOT on bitmaps and counts and aggregates read the rows straight from the source:
+ *
+ * <pre>{@code
+ * var index = BitmapIndex.of(allCities);
+ * var north = index.where(city -> city.area() == Area.NORTH);
+ * var big = index.where(city -> city.population() > 2_000_000);
+ * long bigOutsideTheNorth = index.count(big.andNot(north));
+ * IntSummaryStatistics stats = index.summarizingInt(north.or(big), City::population);
+ * }</pre>
+ */
+public final class BitmapIndex<T> {
+
+    private final Object[] rows;
+    private final RowBitmap all;
+
+    private BitmapIndex(Object[] rows) {
+        this.rows = rows;
+        this.all = RowBitmap.matching(rows.length, row -> true);
+    }
+
+    public static <T> BitmapIndex<T> of(List<? extends T> rows) {
+        return new BitmapIndex<>(rows.toArray());
+    }
+
+    @SafeVarargs
+    public static <T> BitmapIndex<T> of(T... rows) {
+        return new BitmapIndex<>(Arrays.copyOf(rows, rows.length, Object[].class));
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T row(int index) {
+        return (T) rows[index];
+    }
+
+    public RowBitmap all() {
+        return all;
+    }
+
+    public RowBitmap where(Predicate<? super T> predicate) {
+        return RowBitmap.matching(rows.length, row -> predicate.test(row(row)));
+    }
+
+    /**
+     * The bitmap counterpart of {@code Collectors.partitioningBy}: the rows that match under {@code true},
+     * the others under {@code false}.
+     */
+    public Map<Boolean, RowBitmap> partitioningBy(Predicate<? super T> predicate) {
+        var matching = where(predicate);
+        return Map.of(true, matching, false, all.andNot(matching));
+    }
+
+    public long count(RowBitmap selection) {
+        return selection.cardinality();
+    }
+
+    public long sumInt(RowBitmap selection, ToIntFunction<? super T> column) {
+        return selection.rows().parallel().mapToLong(row -> column.applyAsInt(row(row))).sum();
+    }
+
+    public long sumLong(RowBitmap selection, ToLongFunction<? super T> column) {
+        return selection.rows().parallel().mapToLong(row -> column.applyAsLong(row(row))).sum();
+    }
+
+    public OptionalDouble averageInt(RowBitmap selection, ToIntFunction<? super T> column) {
+        return selection.isEmpty() ? OptionalDouble.empty()
+                : OptionalDouble.of((double) sumInt(selection, column) / selection.cardinality());
+    }
+
+    public IntSummaryStatistics summarizingInt(RowBitmap selection, ToIntFunction<? super T> column) {
+        return selection.rows().parallel().map(row -> column.applyAsInt(row(row))).summaryStatistics();
+    }
+
+    public LongSummaryStatistics summarizingLong(RowBitmap selection, ToLongFunction<? super T> column) {
+        return selection.rows().parallel().mapToLong(row -> column.applyAsLong(row(row))).summaryStatistics();
+    }
+
+    /**
+     * @return the selected rows in index order, for what the aggregates above do not cover
+     */
+    public Stream<T> stream(RowBitmap selection) {
+        return selection.rows().mapToObj(this::row);
+    }
+
+    public <R> R collect(RowBitmap selection, Collector<? super T, ?, R> collector) {
+        return stream(selection).collect(collector);
+    }
+}
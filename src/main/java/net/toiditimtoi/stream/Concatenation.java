@@ -0,0 +1,167 @@
+package net.toiditimtoi.stream;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Concatenates any number of streams into one flat stream, for sources built from many partitions.
+ * <p>
+ * Chaining {@code Stream.concat} nests one spliterator per stream, so every element passes through as many
+ * levels as there are streams after it, and traversing a few thousand of them overflows the stack.
+ * Here a single spliterator walks an array of parts. It splits along the part boundaries, choosing the boundary
+ * that halves the estimated size so that skewed partitions still give balanced halves, and once a single part is
+ * left it lets that part split itself. The combined size is exact if every part's size is.
+ * <pre>{@code
+ * var allCities = Concatenation.of(partitions.stream().map(Partition::cities).toList());
+ * }</pre>
+ */
+public final class Concatenation {
+
+    private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED
+            | Spliterator.NONNULL | Spliterator.IMMUTABLE | Spliterator.CONCURRENT;
+
+    private Concatenation() {
+    }
+
+    /**
+     * Like {@code Stream.concat}: the result is parallel if any stream is, and closing it closes every stream.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <T> Stream<T> of(Stream<? extends T>... streams) {
+        return of(Arrays.asList(streams));
+    }
+
+    public static <T> Stream<T> of(List<? extends Stream<? extends T>> streams) {
+        @SuppressWarnings("unchecked")
+        var parts = (Spliterator<T>[]) new Spliterator<?>[streams.size()];
+        var parallel = false;
+        for (int i = 0; i < parts.length; i++) {
+            var stream = streams.get(i);
+            parallel |= stream.isParallel();
+            parts[i] = cast(stream.spliterator());
+        }
+        return StreamSupport.stream(new ConcatSpliterator<>(parts, 0, parts.length), parallel)
+                .onClose(() -> closeAll(streams));
+    }
+
+    public static <T> Spliterator<T> ofSpliterators(List<? extends Spliterator<? extends T>> spliterators) {
+        @SuppressWarnings("unchecked")
+        var parts = (Spliterator<T>[]) new Spliterator<?>[spliterators.size()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = cast(spliterators.get(i));
+        }
+        return new ConcatSpliterator<>(parts, 0, parts.length);
+    }
+
+    // a spliterator of a subtype only ever hands out elements of type T
+    @SuppressWarnings("unchecked")
+    private static <T> Spliterator<T> cast(Spliterator<? extends T> spliterator) {
+        return (Spliterator<T>) spliterator;
+    }
+
+    private static void closeAll(List<? extends Stream<?>> streams) {
+        RuntimeException failure = null;
+        for (var stream : streams) {
+            try {
+                stream.close();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else if (failure != e) {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    static final class ConcatSpliterator<T> implements Spliterator<T> {
+        private final Spliterator<T>[] parts;
+        private int current;
+        private final int end;
+
+        ConcatSpliterator(Spliterator<T>[] parts, int from, int to) {
+            this.parts = parts;
+            this.current = from;
+            this.end = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            for (; current < end; current++) {
+                if (parts[current].tryAdvance(action)) {
+                    return true;
+                }
+                parts[current] = null;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (; current < end; current++) {
+                parts[current].forEachRemaining(action);
+                parts[current] = null;
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (end - current == 1) {
+                return parts[current].trySplit();
+            }
+            if (end - current < 2) {
+                return null;
+            }
+            // the boundary closest to half of the estimated size, leaving at least one part on each side
+            var half = estimateSize() / 2;
+            var mid = current + 1;
+            var prefixSize = parts[current].estimateSize();
+            while (mid < end - 1 && prefixSize < half) {
+                var next = prefixSize + parts[mid].estimateSize();
+                if (next < 0 || next - half > half - prefixSize) {
+                    break;
+                }
+                prefixSize = next;
+                mid++;
+            }
+            var prefix = new ConcatSpliterator<>(parts, current, mid);
+            current = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = 0;
+            for (int i = current; i < end; i++) {
+                size += parts[i].estimateSize();
+                if (size < 0) {
+                    return Long.MAX_VALUE;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            if (current >= end) {
+                return CHARACTERISTICS;
+            }
+            var characteristics = CHARACTERISTICS;
+            for (int i = current; i < end; i++) {
+                characteristics &= parts[i].characteristics();
+            }
+            if ((characteristics & Spliterator.SIZED) != 0 && estimateSize() == Long.MAX_VALUE) {
+                characteristics &= ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+            }
+            return characteristics;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package net.toiditimtoi.stream;
+
+import net.toiditimtoi.collection.BloomFilter;
+import net.toiditimtoi.collection.IntHashSet;
+import net.toiditimtoi.collection.LongHashSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * {@code unordered().distinct()} for large parallel streams, without a shared set.
+ * <p>
+ * Each thread appends the elements of its part of the stream to one of {@value #SHARDS} shards picked by hash,
+ * and joining the parts of two threads only links their shard buffers. Then every shard is deduplicated on its
+ * own, shards in parallel, each into a set no other thread touches: open-addressing {@link IntHashSet} and
+ * {@link LongHashSet} for primitives, a {@link HashSet} for objects. No element is compared or locked across
+ * threads, so the work spreads over the cores instead of queueing on one concurrent map.
+ * <p>
+ * The approximate variants are opt-in and lossy: they put a {@link BloomFilter} in place of each shard's set and
+ * keep a value only when the filter has certainly not seen it. They never emit a duplicate, but a distinct value
+ * the filter mistakes for one it has seen is dropped, at most a {@code falsePositiveRate} share of the distinct
+ * values. In exchange the filter takes about {@code 1.44 * log2(1 / falsePositiveRate)} bits per element instead
+ * of a table slot, and no value is compared with another; the shard buffers still hold the whole input.
+ * <p>
+ * The result comes in no particular order. The operations are terminal on their source: it is consumed when the
+ * method is called and the returned stream, parallel if the source was, reads the distinct values. Closing the
+ * returned stream closes the source.
+ */
+public final class Distinct {
+
+    static final int SHARD_BITS = 6;
+    static final int SHARDS = 1 << SHARD_BITS;
+    // the chunks of a shard buffer grow up to this many elements
+    private static final int MAX_CHUNK = 4096;
+
+    private Distinct() {
+    }
+
+    public static <T> Stream<T> of(Stream<T> source) {
+        var parallel = source.isParallel();
+        var shards = source.collect(ObjectShards::new, ObjectShards::add, ObjectShards::addAll);
+        var distinct = new Object[SHARDS][];
+        shards(parallel).forEach(shard -> {
+            var set = new HashSet<>(shards.buffers[shard].size());
+            shards.buffers[shard].forEach(set::add);
+            distinct[shard] = set.toArray();
+        });
+        @SuppressWarnings("unchecked")
+        var stream = (Stream<T>) Arrays.stream(concat(distinct, parallel));
+        return (parallel ? stream.parallel() : stream).onClose(source::close);
+    }
+
+    public static IntStream of(IntStream source) {
+        var parallel = source.isParallel();
+        var shards = source.collect(IntShards::new, IntShards::add, IntShards::addAll);
+        var distinct = new int[SHARDS][];
+        shards(parallel).forEach(shard -> {
+            var set = new IntHashSet(shards.buffers[shard].size());
+            shards.buffers[shard].forEach(set::add);
+            distinct[shard] = set.toArray();
+        });
+        var stream = IntStream.of(concat(distinct, parallel));
+        return (parallel ? stream.parallel() : stream).onClose(source::close);
+    }
+
+    public static LongStream of(LongStream source) {
+        var parallel = source.isParallel();
+        var shards = source.collect(LongShards::new, LongShards::add, LongShards::addAll);
+        var distinct = new long[SHARDS][];
+        shards(parallel).forEach(shard -> {
+            var set = new LongHashSet(shards.buffers[shard].size());
+            shards.buffers[shard].forEach(set::add);
+            distinct[shard] = set.toArray();
+        });
+        var stream = LongStream.of(concat(distinct, parallel));
+        return (parallel ? stream.parallel() : stream).onClose(source::close);
+    }
+
+    /**
+     * @param falsePositiveRate the probability that a distinct value is mistaken for a duplicate and dropped
+     */
+    public static IntStream approximate(IntStream source, double falsePositiveRate) {
+        return approximate(source.asLongStream(), falsePositiveRate).mapToInt(value -> (int) value);
+    }
+
+    /**
+     * @param falsePositiveRate the probability that a distinct value is mistaken for a duplicate and dropped
+     */
+    public static LongStream approximate(LongStream source, double falsePositiveRate) {
+        var parallel = source.isParallel();
+        var shards = source.collect(LongShards::new, LongShards::add, LongShards::addAll);
+        var distinct = new long[SHARDS][];
+        shards(parallel).forEach(shard -> {
+            var buffer = shards.buffers[shard];
+            var filter = new BloomFilter(buffer.size(), falsePositiveRate);
+            var kept = new LongBuffer();
+            buffer.forEach(value -> {
+                // put is true when the value was certainly not seen before
+                if (filter.put(LongHashSet.mix64(value))) {
+                    kept.add(value);
+                }
+            });
+            distinct[shard] = kept.toArray();
+        });
+        var stream = LongStream.of(concat(distinct, parallel));
+        return (parallel ? stream.parallel() : stream).onClose(source::close);
+    }
+
+    private static IntStream shards(boolean parallel) {
+        var shards = IntStream.range(0, SHARDS);
+        return parallel ? shards.parallel() : shards;
+    }
+
+    static int shardOf(int hash) {
+        return IntHashSet.mix(hash) >>> (Integer.SIZE - SHARD_BITS);
+    }
+
+    static int shardOf(long value) {
+        return (int) (LongHashSet.mix64(value) >>> (Long.SIZE - SHARD_BITS));
+    }
+
+    private static int[] concat(int[][] parts, boolean parallel) {
+        var offsets = offsets(Arrays.stream(parts).mapToInt(part -> part.length).toArray());
+        var result = new int[offsets[parts.length]];
+        shards(parallel).forEach(shard -> System.arraycopy(parts[shard], 0, result, offsets[shard], parts[shard].length));
+        return result;
+    }
+
+    private static long[] concat(long[][] parts, boolean parallel) {
+        var offsets = offsets(Arrays.stream(parts).mapToInt(part -> part.length).toArray());
+        var result = new long[offsets[parts.length]];
+        shards(parallel).forEach(shard -> System.arraycopy(parts[shard], 0, result, offsets[shard], parts[shard].length));
+        return result;
+    }
+
+    private static Object[] concat(Object[][] parts, boolean parallel) {
+        var offsets = offsets(Arrays.stream(parts).mapToInt(part -> part.length).toArray());
+        var result = new Object[offsets[parts.length]];
+        shards(parallel).forEach(shard -> System.arraycopy(parts[shard], 0, result, offsets[shard], parts[shard].length));
+        return result;
+    }
+
+    private static int[] offsets(int[] lengths) {
+        var offsets = new int[lengths.length + 1];
+        for (int i = 0; i < lengths.length; i++) {
+            offsets[i + 1] = Math.addExact(offsets[i], lengths[i]);
+        }
+        return offsets;
+    }
+
+    // the shard buffers of one part of the stream
+
+    private static final class IntShards {
+        final IntBuffer[] buffers = new IntBuffer[SHARDS];
+
+        IntShards() {
+            Arrays.setAll(buffers, shard -> new IntBuffer());
+        }
+
+        void add(int value) {
+            buffers[shardOf(value)].add(value);
+        }
+
+        void addAll(IntShards other) {
+            for (int shard = 0; shard < SHARDS; shard++) {
+                buffers[shard].addAll(other.buffers[shard]);
+            }
+        }
+    }
+
+    private static final class LongShards {
+        final LongBuffer[] buffers = new LongBuffer[SHARDS];
+
+        LongShards() {
+            Arrays.setAll(buffers, shard -> new LongBuffer());
+        }
+
+        void add(long value) {
+            buffers[shardOf(value)].add(value);
+        }
+
+        void addAll(LongShards other) {
+            for (int shard = 0; shard < SHARDS; shard++) {
+                buffers[shard].addAll(other.buffers[shard]);
+            }
+        }
+    }
+
+    private static final class ObjectShards {
+        final ObjectBuffer[] buffers = new ObjectBuffer[SHARDS];
+
+        ObjectShards() {
+            Arrays.setAll(buffers, shard -> new ObjectBuffer());
+        }
+
+        void add(Object value) {
+            buffers[shardOf(value == null ? 0 : value.hashCode())].add(value);
+        }
+
+        void addAll(ObjectShards other) {
+            for (int shard = 0; shard < SHARDS; shard++) {
+                buffers[shard].addAll(other.buffers[shard]);
+            }
+        }
+    }
+
+    /**
+     * Growing chunks of values; appending another buffer takes over its full chunks
+     * and copies only the partly filled ones.
+     */
+    private static final class IntBuffer {
+        private final List<int[]> full = new ArrayList<>();
+        private int[] current = new int[16];
+        private int currentSize;
+        private int size;
+
+        void add(int value) {
+            if (currentSize == current.length) {
+                full.add(current);
+                current = new int[Math.min(MAX_CHUNK, current.length * 2)];
+                currentSize = 0;
+            }
+            current[currentSize++] = value;
+            size++;
+        }
+
+        void addAll(IntBuffer other) {
+            full.add(Arrays.copyOf(current, currentSize));
+            full.addAll(other.full);
+            current = Arrays.copyOf(other.current, other.current.length);
+            currentSize = other.currentSize;
+            size += other.size;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(IntConsumer action) {
+            for (var chunk : full) {
+                for (var value : chunk) {
+                    action.accept(value);
+                }
+            }
+            for (int i = 0; i < currentSize; i++) {
+                action.accept(current[i]);
+            }
+        }
+    }
+
+    private static final class LongBuffer {
+        private final List<long[]> full = new ArrayList<>();
+        private long[] current = new long[16];
+        private int currentSize;
+        private int size;
+
+        void add(long value) {
+            if (currentSize == current.length) {
+                full.add(current);
+                current = new long[Math.min(MAX_CHUNK, current.length * 2)];
+                currentSize = 0;
+            }
+            current[currentSize++] = value;
+            size++;
+        }
+
+        void addAll(LongBuffer other) {
+            full.add(Arrays.copyOf(current, currentSize));
+            full.addAll(other.full);
+            current = Arrays.copyOf(other.current, other.current.length);
+            currentSize = other.currentSize;
+            size += other.size;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(LongConsumer action) {
+            for (var chunk : full) {
+                for (var value : chunk) {
+                    action.accept(value);
+                }
+            }
+            for (int i = 0; i < currentSize; i++) {
+                action.accept(current[i]);
+            }
+        }
+
+        long[] toArray() {
+            var values = new long[size];
+            var next = 0;
+            for (var chunk : full) {
+                System.arraycopy(chunk, 0, values, next, chunk.length);
+                next += chunk.length;
+            }
+            System.arraycopy(current, 0, values, next, currentSize);
+            return values;
+        }
+    }
+
+    private static final class ObjectBuffer {
+        private final List<Object[]> full = new ArrayList<>();
+        private Object[] current = new Object[16];
+        private int currentSize;
+        private int size;
+
+        void add(Object value) {
+            if (currentSize == current.length) {
+                full.add(current);
+                current = new Object[Math.min(MAX_CHUNK, current.length * 2)];
+                currentSize = 0;
+            }
+            current[currentSize++] = value;
+            size++;
+        }
+
+        void addAll(ObjectBuffer other) {
+            full.add(Arrays.copyOf(current, currentSize));
+            full.addAll(other.full);
+            current = Arrays.copyOf(other.current, other.current.length);
+            currentSize = other.currentSize;
+            size += other.size;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(Consumer<Object> action) {
+            for (var chunk : full) {
+                for (var value : chunk) {
+                    action.accept(value);
+                }
+            }
+            for (int i = 0; i < currentSize; i++) {
+                action.accept(current[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package net.toiditimtoi.stream;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Stream-like operators over an unbounded {@link Flow.Publisher}, such as a feed of city population updates.
+ * <p>
+ * The operators are fused into one chain that runs on the configured executor behind a single bounded buffer:
+ * <ul>
+ *     <li>the pipeline never requests more than {@code bufferSize} elements ahead of what it has processed,
+ *     so a producer that outpaces the consumer is held back by its publisher instead of filling the heap,</li>
+ *     <li>elements are taken out of the buffer {@code batchSize} at a time and demand is replenished in bulk,
+ *     so the cost of signalling is paid per batch rather than per element.</li>
+ * </ul>
+ * A pipeline is a description, each terminal operation subscribes to the source anew.
+ *
+ * <pre>{@code
+ * var populationByArea = FlowPipeline.from(updates)
+ *         .withExecutor(executor)
+ *         .filter(update -> update.population() > 0)
+ *         .groupingBy(Update::area, Collectors.summingLong(Update::population));
+ * ...
+ * var current = populationByArea.snapshot();
+ * }</pre>
+ */
+public final class FlowPipeline<T> {
+
+    static final int DEFAULT_BUFFER_SIZE = Flow.defaultBufferSize();
+    static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final Flow.Publisher<Object> source;
+    private final Function<Consumer<? super T>, Consumer<Object>> chain;
+    private final Executor executor;
+    private final int bufferSize;
+    private final int batchSize;
+
+    private FlowPipeline(Flow.Publisher<Object> source, Function<Consumer<? super T>, Consumer<Object>> chain,
+                         Executor executor, int bufferSize, int batchSize) {
+        this.source = source;
+        this.chain = chain;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.batchSize = batchSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> FlowPipeline<T> from(Flow.Publisher<? extends T> source) {
+        Objects.requireNonNull(source);
+        return new FlowPipeline<>((Flow.Publisher<Object>) source, downstream -> (Consumer<Object>) downstream,
+                ForkJoinPool.commonPool(), DEFAULT_BUFFER_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param executor runs the operators and the terminal operation, one task at a time per subscription
+     */
+    public FlowPipeline<T> withExecutor(Executor executor) {
+        return new FlowPipeline<>(source, chain, Objects.requireNonNull(executor), bufferSize, batchSize);
+    }
+
+    /**
+     * @param bufferSize the most elements requested from the source but not processed yet
+     */
+    public FlowPipeline<T> withBufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        }
+        return new FlowPipeline<>(source, chain, executor, bufferSize, Math.min(batchSize, bufferSize));
+    }
+
+    /**
+     * @param batchSize how many buffered elements are handed to the operators at once, at most the buffer size
+     */
+    public FlowPipeline<T> withBatchSize(int batchSize) {
+        if (batchSize <= 0 || batchSize > bufferSize) {
+            throw new IllegalArgumentException("batchSize must be between 1 and " + bufferSize + ": " + batchSize);
+        }
+        return new FlowPipeline<>(source, chain, executor, bufferSize, batchSize);
+    }
+
+    public FlowPipeline<T> filter(Predicate<? super T> predicate) {
+        return then(downstream -> element -> {
+            if (predicate.test(element)) {
+                downstream.accept(element);
+            }
+        });
+    }
+
+    public <R> FlowPipeline<R> map(Function<? super T, ? extends R> mapper) {
+        return then(downstream -> element -> downstream.accept(mapper.apply(element)));
+    }
+
+    public <R> FlowPipeline<R> flatMap(Function<? super T, ? extends Stream<? extends R>> mapper) {
+        return then(downstream -> element -> {
+            try (var mapped = mapper.apply(element)) {
+                if (mapped != null) {
+                    mapped.forEach(downstream);
+                }
+            }
+        });
+    }
+
+    public FlowPipeline<T> peek(Consumer<? super T> action) {
+        return then(downstream -> element -> {
+            action.accept(element);
+            downstream.accept(element);
+        });
+    }
+
+    private <R> FlowPipeline<R> then(Function<Consumer<? super R>, Consumer<T>> stage) {
+        return new FlowPipeline<>(source, downstream -> chain.apply(stage.apply(downstream)), executor, bufferSize, batchSize);
+    }
+
+    /**
+     * @return completes when the source completes, or exceptionally when the source or the action fails;
+     * cancelling it cancels the subscription
+     */
+    public CompletableFuture<Void> forEach(Consumer<? super T> action) {
+        var result = new CompletableFuture<Void>();
+        run(new BatchingSubscriber.Terminal<>() {
+            @Override
+            public void accept(T element) {
+                action.accept(element);
+            }
+
+            @Override
+            public void complete() {
+                result.complete(null);
+            }
+
+            @Override
+            public void fail(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        }, result);
+        return result;
+    }
+
+    /**
+     * Collects a source that eventually completes.
+     */
+    public <A, R> CompletableFuture<R> collect(Collector<? super T, A, R> collector) {
+        var result = new CompletableFuture<R>();
+        var container = collector.supplier().get();
+        var accumulator = collector.accumulator();
+        run(new BatchingSubscriber.Terminal<>() {
+            @Override
+            public void accept(T element) {
+                accumulator.accept(container, element);
+            }
+
+            @Override
+            public void complete() {
+                result.complete(collector.finisher().apply(container));
+            }
+
+            @Override
+            public void fail(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        }, result);
+        return result;
+    }
+
+    /**
+     * Groups an endless source as it arrives, the groups can be read at any time with {@link LiveGrouping#snapshot()}.
+     * Snapshots copy the containers through the downstream combiner, see {@link LiveGrouping} for the collectors
+     * that allows.
+     */
+    public <K, A, R> LiveGrouping<K, R> groupingBy(Function<? super T, ? extends K> classifier,
+                                                   Collector<? super T, A, R> downstream) {
+        var grouping = new LiveGrouping<K, R>();
+        run(grouping.new Groups<T, A>(classifier, downstream), grouping.completion());
+        return grouping;
+    }
+
+    /**
+     * Groups an endless source as it arrives, snapshots copy each finished group with {@code copyResult}, e.g.
+     * {@code groupingBy(City::area, Collectors.toSet(), Set::copyOf)}. The downstream finisher runs on the live
+     * container and must leave it usable, as the finishers of {@code Collectors} do unless they finish nested groups.
+     */
+    public <K, A, R> LiveGrouping<K, R> groupingBy(Function<? super T, ? extends K> classifier,
+                                                   Collector<? super T, A, R> downstream,
+                                                   UnaryOperator<R> copyResult) {
+        Objects.requireNonNull(copyResult);
+        var grouping = new LiveGrouping<K, R>();
+        run(grouping.new Groups<T, A>(classifier, downstream, copyResult), grouping.completion());
+        return grouping;
+    }
+
+    private void run(BatchingSubscriber.Terminal<T> terminal, CompletableFuture<?> result) {
+        var subscriber = new BatchingSubscriber<>(chain.apply(terminal), terminal, executor, bufferSize, batchSize);
+        result.whenComplete((ignored, error) -> subscriber.cancel());
+        source.subscribe(subscriber);
+    }
+}
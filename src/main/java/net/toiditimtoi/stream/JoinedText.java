@@ -0,0 +1,224 @@
+package net.toiditimtoi.stream;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+
+/**
+ * The result of a join that has not been turned into one {@code String} yet: a rope of the joined pieces with the
+ * exact length of the final text.
+ * <p>
+ * The pieces are kept in segments, one per stream segment, linked in encounter order. Combining two segments only
+ * links them, so a parallel join never copies characters before the end. The text can then be materialized via
+ * {@link #toString()} into a buffer of exactly its length, or written piece by piece to a {@link Writer} or a
+ * {@link WritableByteChannel} without ever building the whole string.
+ */
+public final class JoinedText implements CharSequence {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final String delimiter;
+    private final String prefix;
+    private final String suffix;
+    private Segment head;
+    private Segment tail;
+    private String materialized;
+
+    JoinedText(CharSequence delimiter, CharSequence prefix, CharSequence suffix) {
+        this.delimiter = delimiter.toString();
+        this.prefix = prefix.toString();
+        this.suffix = suffix.toString();
+        this.head = this.tail = new Segment();
+    }
+
+    void add(CharSequence piece) {
+        tail.add(String.valueOf(piece));
+    }
+
+    JoinedText combine(JoinedText other) {
+        tail.next = other.head;
+        tail = other.tail;
+        return this;
+    }
+
+    /**
+     * @return the number of joined pieces, delimiters, prefix and suffix excluded
+     */
+    public long pieceCount() {
+        long count = 0;
+        for (var segment = head; segment != null; segment = segment.next) {
+            count += segment.size;
+        }
+        return count;
+    }
+
+    /**
+     * @return the exact number of chars of the joined text, which may exceed what a single {@code String} can hold
+     */
+    public long exactLength() {
+        long pieces = 0;
+        long chars = 0;
+        for (var segment = head; segment != null; segment = segment.next) {
+            pieces += segment.size;
+            chars += segment.chars;
+        }
+        var delimiters = pieces == 0 ? 0 : (pieces - 1) * delimiter.length();
+        return prefix.length() + chars + delimiters + suffix.length();
+    }
+
+    @Override
+    public int length() {
+        return Math.toIntExact(exactLength());
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    /**
+     * Builds the text once, into a {@link StringBuilder} of {@link #exactLength()} chars that never grows, and
+     * copies it into the result. The builder holds one byte per char as long as the pieces are Latin-1 and is
+     * widened once, to two bytes per char, by the first piece that is not.
+     *
+     * @throws ArithmeticException if the text is longer than a {@code String} can be
+     */
+    @Override
+    public String toString() {
+        if (materialized == null) {
+            var text = new StringBuilder(length());
+            text.append(prefix);
+            var first = true;
+            for (var segment = head; segment != null; segment = segment.next) {
+                for (int i = 0; i < segment.size; i++) {
+                    if (!first) {
+                        text.append(delimiter);
+                    }
+                    text.append(segment.pieces[i]);
+                    first = false;
+                }
+            }
+            materialized = text.append(suffix).toString();
+        }
+        return materialized;
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        writer.write(prefix);
+        var first = true;
+        for (var segment = head; segment != null; segment = segment.next) {
+            for (int i = 0; i < segment.size; i++) {
+                if (!first) {
+                    writer.write(delimiter);
+                }
+                writer.write(segment.pieces[i]);
+                first = false;
+            }
+        }
+        writer.write(suffix);
+    }
+
+    /**
+     * Encodes the text into the channel through one reusable buffer.
+     */
+    public void writeTo(WritableByteChannel channel, Charset charset) throws IOException {
+        var out = new ChannelEncoder(charset.newEncoder(), channel);
+        out.encode(prefix);
+        var first = true;
+        for (var segment = head; segment != null; segment = segment.next) {
+            for (int i = 0; i < segment.size; i++) {
+                if (!first) {
+                    out.encode(delimiter);
+                }
+                out.encode(segment.pieces[i]);
+                first = false;
+            }
+        }
+        out.encode(suffix);
+        out.finish();
+    }
+
+    /**
+     * Encodes the pieces as one text: a surrogate pair may be split across two pieces, so the chars the encoder
+     * leaves at the end of a piece are carried over to the next one, and only the end of the text is end of input.
+     */
+    private static final class ChannelEncoder {
+        private final CharsetEncoder encoder;
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        private String carried = "";
+
+        ChannelEncoder(CharsetEncoder encoder, WritableByteChannel channel) {
+            this.encoder = encoder;
+            this.channel = channel;
+        }
+
+        void encode(String text) throws IOException {
+            // rarely anything is carried, and then only the half of a surrogate pair
+            var chars = CharBuffer.wrap(carried.isEmpty() ? text : carried + text);
+            encode(chars, false);
+            carried = chars.toString();
+        }
+
+        void finish() throws IOException {
+            encode(CharBuffer.wrap(carried), true);
+            carried = "";
+            while (encoder.flush(buffer).isOverflow()) {
+                drain();
+            }
+            drain();
+        }
+
+        private void encode(CharBuffer chars, boolean endOfInput) throws IOException {
+            while (true) {
+                var result = encoder.encode(chars, buffer, endOfInput);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isUnderflow()) {
+                    return;
+                } else {
+                    throwError(result);
+                }
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static void throwError(CoderResult result) throws CharacterCodingException {
+        result.throwException();
+    }
+
+    private static final class Segment {
+        String[] pieces = new String[16];
+        int size;
+        long chars;
+        Segment next;
+
+        void add(String piece) {
+            if (size == pieces.length) {
+                pieces = Arrays.copyOf(pieces, size * 2);
+            }
+            pieces[size++] = piece;
+            chars += piece.length();
+        }
+    }
+}
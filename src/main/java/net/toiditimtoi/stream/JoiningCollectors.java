@@ -0,0 +1,43 @@
+package net.toiditimtoi.stream;
+
+import java.util.stream.Collector;
+
+/**
+ * Parallel-friendly alternatives to {@code Collectors.joining}.
+ * {@code Collectors.joining} accumulates into a {@code StringBuilder} per segment, so a parallel join copies the
+ * characters again at every combine and every builder doubles its capacity on the way.
+ * These collectors only collect references to the pieces (see {@link JoinedText}) and copy the characters once.
+ */
+public final class JoiningCollectors {
+
+    private JoiningCollectors() {
+    }
+
+    public static Collector<CharSequence, ?, String> joining(CharSequence delimiter) {
+        return joining(delimiter, "", "");
+    }
+
+    public static Collector<CharSequence, ?, String> joining(CharSequence delimiter, CharSequence prefix, CharSequence suffix) {
+        return Collector.of(
+                () -> new JoinedText(delimiter, prefix, suffix),
+                JoinedText::add,
+                JoinedText::combine,
+                JoinedText::toString
+        );
+    }
+
+    /**
+     * Collects into a rope that can be written to a {@code Writer} or a channel without building one giant string.
+     */
+    public static Collector<CharSequence, ?, JoinedText> toJoinedText(CharSequence delimiter) {
+        return toJoinedText(delimiter, "", "");
+    }
+
+    public static Collector<CharSequence, ?, JoinedText> toJoinedText(CharSequence delimiter, CharSequence prefix, CharSequence suffix) {
+        return Collector.of(
+                () -> new JoinedText(delimiter, prefix, suffix),
+                JoinedText::add,
+                JoinedText::combine
+        );
+    }
+}
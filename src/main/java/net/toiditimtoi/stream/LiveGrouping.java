@@ -0,0 +1,153 @@
+package net.toiditimtoi.stream;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collector;
+
+/**
+ * The running result of {@link FlowPipeline#groupingBy}: groups that keep growing while the source keeps sending.
+ * <p>
+ * Each group is a single downstream container that the pipeline accumulates into, a whole batch at a time under a
+ * lock, so memory grows with the number of groups and not with the length of the feed. A snapshot takes the same
+ * lock and finishes a copy of every container, so it always reflects complete batches and shares nothing with the
+ * groups that keep growing. Its cost is a copy of each container, however many elements came before.
+ * <p>
+ * A container cannot be copied in general. By default a snapshot combines each container into an empty one, which
+ * copies it for collectors whose combiner folds its second argument into its first, such as {@code counting()},
+ * {@code summingLong()}, {@code averagingInt()}, {@code reducing()}, {@code joining()} or {@code toList()}.
+ * Collectors whose combiner may hand back its argument, such as {@code toSet()}, or shares nested containers,
+ * such as {@code groupingBy()}, need a copy function for their results instead.
+ */
+public final class LiveGrouping<K, R> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CompletableFuture<Map<K, R>> completion = new CompletableFuture<>();
+    private Groups<?, ?> groups;
+    private long processed;
+
+    LiveGrouping() {
+    }
+
+    /**
+     * @return the groups as of the last processed batch
+     * @throws IllegalStateException if the downstream combiner handed back the live container instead of a copy
+     */
+    public Map<K, R> snapshot() {
+        lock.lock();
+        try {
+            return groups == null ? Map.of() : groups.snapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how many elements reached the grouping so far
+     */
+    public long processed() {
+        lock.lock();
+        try {
+            return processed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return completes with the final groups if the source completes, cancelling it cancels the subscription
+     */
+    public CompletableFuture<Map<K, R>> completion() {
+        return completion;
+    }
+
+    public void cancel() {
+        completion.cancel(false);
+    }
+
+    final class Groups<T, A> implements BatchingSubscriber.Terminal<T> {
+
+        private final Function<? super T, ? extends K> classifier;
+        private final Collector<? super T, A, R> downstream;
+        private final BiConsumer<A, ? super T> accumulator;
+        private final Function<A, R> copy;
+        private final Map<K, A> containers = new HashMap<>();
+
+        /**
+         * Snapshots combine each container into an empty one and finish the result.
+         */
+        Groups(Function<? super T, ? extends K> classifier, Collector<? super T, A, R> downstream) {
+            this(container -> {
+                var copied = downstream.combiner().apply(downstream.supplier().get(), container);
+                if (copied == container) {
+                    throw new IllegalStateException("the downstream combiner hands back its argument instead of "
+                            + "a copy, group with a copy function for the results");
+                }
+                return downstream.finisher().apply(copied);
+            }, classifier, downstream);
+        }
+
+        /**
+         * Snapshots finish each live container and copy the result, the finisher must leave the container usable.
+         */
+        Groups(Function<? super T, ? extends K> classifier, Collector<? super T, A, R> downstream,
+               UnaryOperator<R> copyResult) {
+            this(container -> copyResult.apply(downstream.finisher().apply(container)), classifier, downstream);
+        }
+
+        private Groups(Function<A, R> copy, Function<? super T, ? extends K> classifier,
+                       Collector<? super T, A, R> downstream) {
+            this.classifier = classifier;
+            this.downstream = downstream;
+            this.accumulator = downstream.accumulator();
+            this.copy = copy;
+            groups = this;
+        }
+
+        @Override
+        public void beginBatch() {
+            lock.lock();
+        }
+
+        @Override
+        public void accept(T element) {
+            K key = Objects.requireNonNull(classifier.apply(element), "element cannot be mapped to a null key");
+            accumulator.accept(containers.computeIfAbsent(key, k -> downstream.supplier().get()), element);
+            processed++;
+        }
+
+        @Override
+        public void endBatch() {
+            lock.unlock();
+        }
+
+        @Override
+        public void complete() {
+            lock.lock();
+            try {
+                // nothing accumulates any more, the containers can be finished in place
+                var result = new HashMap<K, R>();
+                containers.forEach((key, container) -> result.put(key, downstream.finisher().apply(container)));
+                completion.complete(result);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void fail(Throwable error) {
+            completion.completeExceptionally(error);
+        }
+
+        Map<K, R> snapshot() {
+            var result = new HashMap<K, R>();
+            containers.forEach((key, container) -> result.put(key, copy.apply(container)));
+            return result;
+        }
+    }
+}
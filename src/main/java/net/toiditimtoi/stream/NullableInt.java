@@ -0,0 +1,122 @@
+package net.toiditimtoi.stream;
+
+import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongSupplier;
+
+/**
+ * An {@link OptionalInt} packed into a primitive {@code long}, so that it can be returned and chained without
+ * allocating: a present value has bit 32 set and the int in the low bits, {@link #EMPTY} is zero.
+ * Every int can be present, nothing is reserved as a sentinel.
+ * <pre>{@code
+ * long population = NullableInt.filter(populationOf(id), p -> p > 1_000_000);
+ * int inThousands = NullableInt.orElse(NullableInt.map(population, p -> p / 1_000), 0);
+ * }</pre>
+ * <b>A packed value is just a {@code long} to the compiler.</b> Nothing stops it from being passed to the
+ * helpers of {@link NullableLong}, which read it as a different value: {@code EMPTY} as a present zero, a present
+ * int as that int plus 2<sup>32</sup>. Keep packed values in variables and methods whose names say so. The other
+ * way round is caught: every helper here checks that its argument is {@code EMPTY} or has the present bit alone
+ * in its high half, and throws {@link IllegalArgumentException} for a plain {@code long} such as a
+ * {@code NullableLong}.
+ */
+public final class NullableInt {
+
+    public static final long EMPTY = 0L;
+    private static final long PRESENT = 1L << 32;
+
+    private NullableInt() {
+    }
+
+    public static long of(int value) {
+        return PRESENT | (value & 0xFFFF_FFFFL);
+    }
+
+    public static boolean isPresent(long packed) {
+        return checked(packed) != EMPTY;
+    }
+
+    public static boolean isEmpty(long packed) {
+        return checked(packed) == EMPTY;
+    }
+
+    /**
+     * @throws NoSuchElementException if empty
+     */
+    public static int get(long packed) {
+        if (checked(packed) == EMPTY) {
+            throw new NoSuchElementException("No value present");
+        }
+        return (int) packed;
+    }
+
+    public static int orElse(long packed, int other) {
+        return checked(packed) == EMPTY ? other : (int) packed;
+    }
+
+    public static int orElseGet(long packed, IntSupplier other) {
+        return checked(packed) == EMPTY ? other.getAsInt() : (int) packed;
+    }
+
+    public static long map(long packed, IntUnaryOperator mapper) {
+        return checked(packed) == EMPTY ? EMPTY : of(mapper.applyAsInt((int) packed));
+    }
+
+    /**
+     * @param mapper returns a packed {@code NullableInt}
+     */
+    public static long flatMap(long packed, IntToLongFunction mapper) {
+        return checked(packed) == EMPTY ? EMPTY : mapper.applyAsLong((int) packed);
+    }
+
+    /**
+     * @return the mapped value, or null if empty
+     */
+    public static <R> R mapToObj(long packed, IntFunction<? extends R> mapper) {
+        return checked(packed) == EMPTY ? null : mapper.apply((int) packed);
+    }
+
+    public static long filter(long packed, IntPredicate predicate) {
+        return checked(packed) != EMPTY && predicate.test((int) packed) ? packed : EMPTY;
+    }
+
+    /**
+     * @param other supplies a packed {@code NullableInt}
+     */
+    public static long or(long packed, LongSupplier other) {
+        return checked(packed) != EMPTY ? packed : other.getAsLong();
+    }
+
+    public static void ifPresent(long packed, IntConsumer action) {
+        if (checked(packed) != EMPTY) {
+            action.accept((int) packed);
+        }
+    }
+
+    public static OptionalInt toOptional(long packed) {
+        return checked(packed) == EMPTY ? OptionalInt.empty() : OptionalInt.of((int) packed);
+    }
+
+    public static long fromOptional(OptionalInt optional) {
+        return optional.isPresent() ? of(optional.getAsInt()) : EMPTY;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value was not made by this class, e.g. a {@link NullableLong}
+     */
+    private static long checked(long packed) {
+        if (packed != EMPTY && (packed & ~0xFFFF_FFFFL) != PRESENT) {
+            throw new IllegalArgumentException("not a packed NullableInt: " + packed);
+        }
+        return packed;
+    }
+
+    public static String toString(long packed) {
+        return checked(packed) == EMPTY ? "NullableInt.empty" : "NullableInt[" + (int) packed + "]";
+    }
+}
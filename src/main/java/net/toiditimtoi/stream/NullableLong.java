@@ -0,0 +1,104 @@
+package net.toiditimtoi.stream;
+
+import java.util.NoSuchElementException;
+import java.util.OptionalLong;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * An {@link OptionalLong} as a primitive {@code long}, with {@link Long#MIN_VALUE} as the sentinel for empty.
+ * Chains of these helpers allocate nothing. The price is that {@code Long.MIN_VALUE} itself cannot be present,
+ * {@link #of} rejects it; ids, counts and populations never need it. Use {@link NullableInt} for ints,
+ * which needs no sentinel.
+ * <p>
+ * <b>Do not mix it up with {@link NullableInt}.</b> Both are plain {@code long}s to the compiler, but a packed
+ * {@code NullableInt} is a different {@code long}: its {@code EMPTY} is zero, which these helpers read as a
+ * present zero, and a present int reads as that int plus 2<sup>32</sup>. Every {@code long} is a valid value here,
+ * so this class cannot detect the mistake; {@code NullableInt} rejects plain {@code long}s passed to it.
+ */
+public final class NullableLong {
+
+    public static final long EMPTY = Long.MIN_VALUE;
+
+    private NullableLong() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is the sentinel {@link Long#MIN_VALUE}
+     */
+    public static long of(long value) {
+        if (value == EMPTY) {
+            throw new IllegalArgumentException("Long.MIN_VALUE is the empty sentinel");
+        }
+        return value;
+    }
+
+    public static boolean isPresent(long value) {
+        return value != EMPTY;
+    }
+
+    public static boolean isEmpty(long value) {
+        return value == EMPTY;
+    }
+
+    /**
+     * @throws NoSuchElementException if empty
+     */
+    public static long get(long value) {
+        if (value == EMPTY) {
+            throw new NoSuchElementException("No value present");
+        }
+        return value;
+    }
+
+    public static long orElse(long value, long other) {
+        return value == EMPTY ? other : value;
+    }
+
+    public static long orElseGet(long value, LongSupplier other) {
+        return value == EMPTY ? other.getAsLong() : value;
+    }
+
+    public static long map(long value, LongUnaryOperator mapper) {
+        return value == EMPTY ? EMPTY : of(mapper.applyAsLong(value));
+    }
+
+    /**
+     * @param mapper returns a value or {@link #EMPTY}
+     */
+    public static long flatMap(long value, LongUnaryOperator mapper) {
+        return value == EMPTY ? EMPTY : mapper.applyAsLong(value);
+    }
+
+    /**
+     * @return the mapped value, or null if empty
+     */
+    public static <R> R mapToObj(long value, LongFunction<? extends R> mapper) {
+        return value == EMPTY ? null : mapper.apply(value);
+    }
+
+    public static long filter(long value, LongPredicate predicate) {
+        return value != EMPTY && predicate.test(value) ? value : EMPTY;
+    }
+
+    public static long or(long value, LongSupplier other) {
+        return value != EMPTY ? value : other.getAsLong();
+    }
+
+    public static void ifPresent(long value, LongConsumer action) {
+        if (value != EMPTY) {
+            action.accept(value);
+        }
+    }
+
+    public static OptionalLong toOptional(long value) {
+        return value == EMPTY ? OptionalLong.empty() : OptionalLong.of(value);
+    }
+
+    public static long fromOptional(OptionalLong optional) {
+        return optional.isPresent() ? of(optional.getAsLong()) : EMPTY;
+    }
+}
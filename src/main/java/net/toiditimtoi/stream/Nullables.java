@@ -0,0 +1,77 @@
+package net.toiditimtoi.stream;
+
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * The {@link Optional} operations as static helpers over plain nullable references, null meaning empty.
+ * A chain of them allocates nothing, whether or not escape analysis manages to remove the intermediate
+ * {@code Optional}s a chain of {@code Optional} methods creates:
+ * <pre>{@code
+ * // Optional.ofNullable(lookup(id)).map(MyType::description).map(String::toUpperCase).orElse("")
+ * Nullables.orElse(Nullables.map(Nullables.map(lookup(id), MyType::description), String::toUpperCase), "")
+ * }</pre>
+ * There is no {@code flatMap}: a mapper that returns null already gives an empty result, so {@link #map} covers
+ * what {@code Optional.flatMap} does for mappers that return a nullable reference.
+ * Non-capturing lambdas and method references are created once, capturing ones allocate on every evaluation,
+ * so hot paths should hoist them into fields. Convert with {@link #toOptional} and {@link #fromOptional} where
+ * an API exposes {@code Optional}. Primitive results have their own helpers, see {@link NullableInt} and
+ * {@link NullableLong}.
+ */
+public final class Nullables {
+
+    private Nullables() {
+    }
+
+    /**
+     * @param mapper may return null, which makes the result empty
+     */
+    public static <T, R> R map(T value, Function<? super T, ? extends R> mapper) {
+        return value == null ? null : mapper.apply(value);
+    }
+
+    public static <T> T filter(T value, Predicate<? super T> predicate) {
+        return value != null && predicate.test(value) ? value : null;
+    }
+
+    public static <T> T or(T value, Supplier<? extends T> other) {
+        return value != null ? value : other.get();
+    }
+
+    public static <T> T orElse(T value, T other) {
+        return value != null ? value : other;
+    }
+
+    public static <T> T orElseThrow(T value) {
+        if (value == null) {
+            throw new NoSuchElementException("No value present");
+        }
+        return value;
+    }
+
+    public static <T> void ifPresent(T value, Consumer<? super T> action) {
+        if (value != null) {
+            action.accept(value);
+        }
+    }
+
+    /**
+     * @return the key packed as a {@link NullableInt}, empty if the value is null
+     */
+    public static <T> long mapToInt(T value, ToIntFunction<? super T> mapper) {
+        return value == null ? NullableInt.EMPTY : NullableInt.of(mapper.applyAsInt(value));
+    }
+
+    public static <T> Optional<T> toOptional(T value) {
+        return Optional.ofNullable(value);
+    }
+
+    public static <T> T fromOptional(Optional<? extends T> optional) {
+        return optional.orElse(null);
+    }
+}
@@ -0,0 +1,212 @@
+package net.toiditimtoi.stream;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Short-circuiting searches for expensive predicates over a random access list, run on a fork/join pool.
+ * <p>
+ * All subtasks of one search share the index of the best match found so far and look at it every
+ * {@value #CHECK_INTERVAL} elements and before forking, so they stop as soon as the answer is known:
+ * <ul>
+ *     <li>{@code findAny} and the match operations stop everything at the first match,</li>
+ *     <li>{@code findFirst} only stops the work that lies to the right of the best index so far,
+ *     work on its left keeps going because it may still find an earlier match.</li>
+ * </ul>
+ * A search may also be given a deadline, after which it gives up with a {@link CancellationException}, unless
+ * the work it did before already settles the result: a match for {@code findAny}, a match with everything to its
+ * left searched for {@code findFirst}.
+ *
+ * <pre>{@code
+ * var firstExpensiveMatch = ParallelSearch.in(provinces)
+ *         .withDeadline(Duration.ofSeconds(2))
+ *         .findFirst(this::expensiveCheck);
+ * }</pre>
+ */
+public final class ParallelSearch<T> {
+
+    static final int CHECK_INTERVAL = 16;
+    private static final int NOT_FOUND = Integer.MAX_VALUE;
+
+    private final List<? extends T> source;
+    private final ForkJoinPool pool;
+    private final Duration deadline;
+    private final LongSupplier nanoTime;
+
+    private ParallelSearch(List<? extends T> source, ForkJoinPool pool, Duration deadline, LongSupplier nanoTime) {
+        this.source = source;
+        this.pool = pool;
+        this.deadline = deadline;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * @param source the elements to search; a list without random access is copied first
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ParallelSearch<T> in(List<? extends T> source) {
+        var indexed = source instanceof RandomAccess ? source : (List<? extends T>) Arrays.asList(source.toArray());
+        return new ParallelSearch<>(indexed, ForkJoinPool.commonPool(), null, System::nanoTime);
+    }
+
+    public ParallelSearch<T> withPool(ForkJoinPool pool) {
+        return new ParallelSearch<>(source, pool, deadline, nanoTime);
+    }
+
+    /**
+     * @param timeout how long a search may run before it is cancelled
+     */
+    public ParallelSearch<T> withDeadline(Duration timeout) {
+        return new ParallelSearch<>(source, pool, timeout, nanoTime);
+    }
+
+    /**
+     * Measures the deadline with another clock than {@link System#nanoTime()}, so that tests decide when it passes.
+     */
+    ParallelSearch<T> withClock(LongSupplier nanoTime) {
+        return new ParallelSearch<>(source, pool, deadline, nanoTime);
+    }
+
+    /**
+     * @throws CancellationException if the deadline passed before the result was known
+     */
+    public Optional<T> findAny(Predicate<? super T> predicate) {
+        var found = search(predicate, false);
+        return found == NOT_FOUND ? Optional.empty() : Optional.of(source.get(found));
+    }
+
+    /**
+     * @throws CancellationException if the deadline passed before the result was known
+     */
+    public Optional<T> findFirst(Predicate<? super T> predicate) {
+        var found = search(predicate, true);
+        return found == NOT_FOUND ? Optional.empty() : Optional.of(source.get(found));
+    }
+
+    public boolean anyMatch(Predicate<? super T> predicate) {
+        return search(predicate, false) != NOT_FOUND;
+    }
+
+    public boolean allMatch(Predicate<? super T> predicate) {
+        return search(predicate.negate(), false) == NOT_FOUND;
+    }
+
+    public boolean noneMatch(Predicate<? super T> predicate) {
+        return search(predicate, false) == NOT_FOUND;
+    }
+
+    private int search(Predicate<? super T> predicate, boolean first) {
+        var deadlineNanos = deadline == null ? Long.MAX_VALUE : nanoTime.getAsLong() + deadline.toNanos();
+        var search = new Search<T>(source, predicate, first, nanoTime, deadlineNanos);
+        var leafSize = Math.max(CHECK_INTERVAL, source.size() / (pool.getParallelism() * 4));
+        pool.invoke(new SearchTask<>(search, 0, source.size(), leafSize));
+        var found = search.best.get();
+        var abandoned = search.abandonedFrom.get();
+        var settled = found == NOT_FOUND ? abandoned == NOT_FOUND : !first || found < abandoned;
+        if (!settled) {
+            throw new CancellationException("search did not complete within " + deadline);
+        }
+        return found;
+    }
+
+    /**
+     * The state shared by all subtasks of one search.
+     */
+    private static final class Search<T> {
+        final List<? extends T> source;
+        final Predicate<? super T> predicate;
+        final boolean first;
+        final LongSupplier nanoTime;
+        final long deadlineNanos;
+        final AtomicInteger best = new AtomicInteger(NOT_FOUND);
+        // the lowest index a subtask gave up at because of the deadline, every index below it has been searched
+        final AtomicInteger abandonedFrom = new AtomicInteger(NOT_FOUND);
+        volatile boolean timedOut;
+
+        Search(List<? extends T> source, Predicate<? super T> predicate, boolean first, LongSupplier nanoTime,
+               long deadlineNanos) {
+            this.source = source;
+            this.predicate = predicate;
+            this.first = first;
+            this.nanoTime = nanoTime;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * @return true when no element from this index on can change the result
+         */
+        boolean pruned(int index) {
+            var found = best.get();
+            if (first ? index >= found : found != NOT_FOUND) {
+                return true;
+            }
+            if (timedOut || deadlineNanos != Long.MAX_VALUE && nanoTime.getAsLong() - deadlineNanos > 0) {
+                timedOut = true;
+                abandonedFrom.accumulateAndGet(index, Math::min);
+                return true;
+            }
+            return false;
+        }
+
+        void found(int index) {
+            if (!first) {
+                best.compareAndSet(NOT_FOUND, index);
+                return;
+            }
+            var current = best.get();
+            while (index < current && !best.compareAndSet(current, index)) {
+                current = best.get();
+            }
+        }
+    }
+
+    private static final class SearchTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Search<T> search;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        SearchTask(Search<T> search, int from, int to, int leafSize) {
+            this.search = search;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (search.pruned(from)) {
+                return;
+            }
+            if (to - from > leafSize) {
+                var mid = (from + to) >>> 1;
+                var right = new SearchTask<>(search, mid, to, leafSize);
+                right.fork();
+                new SearchTask<>(search, from, mid, leafSize).compute();
+                // the right half may have been pruned meanwhile, then it has nothing left to do
+                right.join();
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                if ((i - from) % CHECK_INTERVAL == 0 && i != from && search.pruned(i)) {
+                    return;
+                }
+                if (search.predicate.test(search.source.get(i))) {
+                    search.found(i);
+                    return;
+                }
+            }
+        }
+    }
+}
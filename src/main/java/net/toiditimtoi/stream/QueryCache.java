@@ -0,0 +1,241 @@
+package net.toiditimtoi.stream;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Memoizes the results of queries over sources that do not change, such as dashboards that keep running the same
+ * {@code groupingBy} over the same {@code List.of(...)} of cities.
+ * <p>
+ * A result is keyed by its source, compared by identity, by an optional version stamp for sources that change in
+ * place, and by a query descriptor, any value with {@code equals} and {@code hashCode}: a string, a record of
+ * parameters or an enum such as {@link net.toiditimtoi.workload.AggregationPipeline}. The collector itself cannot
+ * be the key, {@code Collectors} make a new one on every call.
+ * <pre>{@code
+ * var cache = new QueryCache(1_000);
+ * Map<Area, IntSummaryStatistics> byArea = cache.collect(cities, "population by area",
+ *         Collectors.groupingBy(City::area, Collectors.summarizingInt(City::population)));
+ * }</pre>
+ * The cache keeps at most {@code maximumSize} results and evicts the least recently used one beyond that. Results
+ * still being loaded are never evicted, the cache holds more than {@code maximumSize} entries while more loads
+ * than that are running and shrinks back when they complete.
+ * Loading is single-flight: callers asking for a result that is being computed wait for that computation instead
+ * of starting their own, and a failed computation is not cached, the next caller tries again. An entry holds its
+ * source until it is evicted or invalidated.
+ * <p>
+ * Every caller gets the same result object, so results must not be modified; finish the collector with an
+ * unmodifiable copy, e.g. {@code collectingAndThen(..., Map::copyOf)}, when the callers cannot be trusted with that.
+ */
+public final class QueryCache {
+
+    /**
+     * Counters since the cache was created. A caller that waits for another caller's load counts as a hit.
+     */
+    public record Stats(long hits, long misses, long loadFailures, long evictions, long totalLoadNanos) {
+
+        public double hitRate() {
+            var requests = hits + misses;
+            return requests == 0 ? 1.0 : (double) hits / requests;
+        }
+
+        public double averageLoadNanos() {
+            return misses == 0 ? 0.0 : (double) totalLoadNanos / misses;
+        }
+    }
+
+    private record Key(Object source, long version, Object query) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && source == key.source && version == key.version && query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(source) * 31 + Long.hashCode(version)) * 31 + query.hashCode();
+        }
+    }
+
+    /**
+     * A result, or the future of one while its loader is running on {@code loader}.
+     */
+    private record Entry(CompletableFuture<Object> result, Thread loader) {
+    }
+
+    private final int maximumSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Key, Entry> entries;
+    private long hits;
+    private long misses;
+    private long loadFailures;
+    private long evictions;
+    private long totalLoadNanos;
+
+    public QueryCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Collects the source once per query and returns the memoized result afterwards.
+     */
+    public <T, R> R collect(Collection<? extends T> source, Object query, Collector<? super T, ?, R> collector) {
+        Objects.requireNonNull(collector);
+        return get(source, 0, query, () -> source.stream().collect(collector));
+    }
+
+    public <R> R get(Object source, Object query, Supplier<? extends R> loader) {
+        return get(source, 0, query, loader);
+    }
+
+    /**
+     * @param version a stamp the owner of a mutable source changes with its contents; results of other versions
+     *                are never returned and age out of the cache
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R get(Object source, long version, Object query, Supplier<? extends R> loader) {
+        var key = new Key(Objects.requireNonNull(source), version, Objects.requireNonNull(query));
+        Objects.requireNonNull(loader);
+        Entry entry;
+        CompletableFuture<Object> loading = null;
+        lock.lock();
+        try {
+            entry = entries.get(key);
+            if (entry != null) {
+                if (entry.loader() == Thread.currentThread() && !entry.result().isDone()) {
+                    throw new IllegalStateException("recursive load of query " + query);
+                }
+                hits++;
+            } else {
+                loading = new CompletableFuture<>();
+                entry = new Entry(loading, Thread.currentThread());
+                entries.put(key, entry);
+                misses++;
+                evict();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return loading != null ? (R) load(key, entry, loader) : (R) await(entry.result());
+    }
+
+    private Object load(Key key, Entry entry, Supplier<?> loader) {
+        var start = System.nanoTime();
+        try {
+            Object result = loader.get();
+            entry.result().complete(result);
+            recordLoad(start, false);
+            lock.lock();
+            try {
+                evict();
+            } finally {
+                lock.unlock();
+            }
+            return result;
+        } catch (RuntimeException | Error e) {
+            lock.lock();
+            try {
+                entries.remove(key, entry);
+            } finally {
+                lock.unlock();
+            }
+            entry.result().completeExceptionally(e);
+            recordLoad(start, true);
+            throw e;
+        }
+    }
+
+    /**
+     * Drops the least recently used loaded results beyond {@code maximumSize}. An entry being loaded stays, evicting
+     * it would let the next caller start a second load of the same query. Called with the lock held.
+     */
+    private void evict() {
+        var excess = entries.size() - maximumSize;
+        for (var iterator = entries.values().iterator(); excess > 0 && iterator.hasNext(); ) {
+            if (iterator.next().result().isDone()) {
+                iterator.remove();
+                evictions++;
+                excess--;
+            }
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            if (e.getCause() instanceof Error failure) {
+                throw failure;
+            }
+            throw e;
+        }
+    }
+
+    private void recordLoad(long start, boolean failed) {
+        var elapsed = System.nanoTime() - start;
+        lock.lock();
+        try {
+            totalLoadNanos += elapsed;
+            if (failed) {
+                loadFailures++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every result of the source, of any version.
+     */
+    public void invalidate(Object source) {
+        lock.lock();
+        try {
+            entries.keySet().removeIf(key -> key.source() == source);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how many results are cached or being loaded
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(hits, misses, loadFailures, evictions, totalLoadNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
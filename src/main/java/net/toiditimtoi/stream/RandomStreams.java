@@ -0,0 +1,291 @@
+package net.toiditimtoi.stream;
+
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.random.RandomGeneratorFactory;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Random number sources that scale with parallel streams, unlike {@code IntStream.generate(Math::random)} where every
+ * thread contends on one shared {@code Random} and the unsized source splits poorly.
+ * <p>
+ * The sequence is cut into fixed blocks of {@value #BLOCK_SIZE} elements and every block draws from its own
+ * {@link SplittableGenerator}, created from the seed and the block number. Splits always fall on block boundaries,
+ * so each half of a split owns independent generators and no state is shared between threads.
+ * Because a block's values depend only on the seed and the block number, a seeded source yields exactly the same
+ * elements sequentially, in parallel, or through the {@code fill} methods, whatever the number of cores.
+ */
+public final class RandomStreams {
+
+    static final int BLOCK_SIZE = 4096;
+
+    private static final String DEFAULT_ALGORITHM = "L64X128MixRandom";
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final RandomGeneratorFactory<SplittableGenerator> factory;
+    private final long seed;
+
+    public RandomStreams(long seed) {
+        this(DEFAULT_ALGORITHM, seed);
+    }
+
+    public RandomStreams(String algorithm, long seed) {
+        RandomGeneratorFactory<SplittableGenerator> factory = RandomGeneratorFactory.of(algorithm);
+        if (!factory.isSplittable()) {
+            throw new IllegalArgumentException(algorithm + " is not a splittable generator");
+        }
+        this.factory = factory;
+        this.seed = seed;
+    }
+
+    /**
+     * A source seeded from system entropy, for when reproducibility does not matter.
+     */
+    public static RandomStreams fromEntropy() {
+        return new RandomStreams(RandomGeneratorFactory.<SplittableGenerator>of(DEFAULT_ALGORITHM).create().nextLong());
+    }
+
+    // streams
+
+    public IntStream ints(long count, int origin, int bound) {
+        checkBounds(origin < bound);
+        return StreamSupport.intStream(new IntBlockSpliterator(0, checkCount(count), origin, bound), false);
+    }
+
+    public LongStream longs(long count, long origin, long bound) {
+        checkBounds(origin < bound);
+        return StreamSupport.longStream(new LongBlockSpliterator(0, checkCount(count), origin, bound), false);
+    }
+
+    /**
+     * @return uniformly distributed values in [0, 1)
+     */
+    public DoubleStream doubles(long count) {
+        return doubles(count, 0.0, 1.0);
+    }
+
+    public DoubleStream doubles(long count, double origin, double bound) {
+        checkBounds(origin < bound);
+        return StreamSupport.doubleStream(new DoubleBlockSpliterator(0, checkCount(count), origin, bound), false);
+    }
+
+    // bulk fill, the same values as the stream of the same length
+
+    public void fill(int[] array, int origin, int bound) {
+        checkBounds(origin < bound);
+        forEachBlock(array.length, (block, from, to) -> {
+            var generator = generatorFor(block);
+            for (int i = from; i < to; i++) {
+                array[i] = generator.nextInt(origin, bound);
+            }
+        });
+    }
+
+    public void fill(long[] array, long origin, long bound) {
+        checkBounds(origin < bound);
+        forEachBlock(array.length, (block, from, to) -> {
+            var generator = generatorFor(block);
+            for (int i = from; i < to; i++) {
+                array[i] = generator.nextLong(origin, bound);
+            }
+        });
+    }
+
+    public void fill(double[] array, double origin, double bound) {
+        checkBounds(origin < bound);
+        forEachBlock(array.length, (block, from, to) -> {
+            var generator = generatorFor(block);
+            for (int i = from; i < to; i++) {
+                array[i] = generator.nextDouble(origin, bound);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface BlockAction {
+        void fill(long block, int from, int to);
+    }
+
+    private void forEachBlock(int length, BlockAction action) {
+        var blocks = (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        IntStream.range(0, blocks)
+                .parallel()
+                .forEach(block -> {
+                    var from = block * BLOCK_SIZE;
+                    action.fill(block, from, Math.min(length, from + BLOCK_SIZE));
+                });
+    }
+
+    SplittableGenerator generatorFor(long block) {
+        return factory.create(mix64(seed + GOLDEN_GAMMA * (block + 1)));
+    }
+
+    // the finalizer of SplittableRandom, consecutive blocks get unrelated seeds
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void checkBounds(boolean valid) {
+        if (!valid) {
+            throw new IllegalArgumentException("bound must be greater than origin");
+        }
+    }
+
+    private static long checkCount(long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Covers the element indices [index, fence). A generator is forked whenever traversal enters a new block.
+     */
+    private abstract class BlockSpliterator {
+        long index;
+        final long fence;
+        SplittableGenerator generator;
+
+        BlockSpliterator(long index, long fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        final SplittableGenerator generator() {
+            if (generator == null || index % BLOCK_SIZE == 0) {
+                generator = generatorFor(index / BLOCK_SIZE);
+            }
+            return generator;
+        }
+
+        /**
+         * @return the block boundary closest to the middle of the remaining range, or -1 if there is none
+         */
+        final long splitPoint() {
+            var firstBoundary = (index / BLOCK_SIZE + 1) * BLOCK_SIZE;
+            if (firstBoundary >= fence) {
+                return -1;
+            }
+            var mid = (index + fence) >>> 1;
+            return Math.max(firstBoundary, mid / BLOCK_SIZE * BLOCK_SIZE);
+        }
+
+        public final long estimateSize() {
+            return fence - index;
+        }
+
+        public final int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE | Spliterator.NONNULL;
+        }
+    }
+
+    private final class IntBlockSpliterator extends BlockSpliterator implements Spliterator.OfInt {
+        private final int origin;
+        private final int bound;
+
+        IntBlockSpliterator(long index, long fence, int origin, int bound) {
+            super(index, fence);
+            this.origin = origin;
+            this.bound = bound;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(generator().nextInt(origin, bound));
+            index++;
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            var mid = splitPoint();
+            if (mid < 0) {
+                return null;
+            }
+            var prefix = new IntBlockSpliterator(index, mid, origin, bound);
+            prefix.generator = generator;
+            index = mid;
+            generator = null;
+            return prefix;
+        }
+    }
+
+    private final class LongBlockSpliterator extends BlockSpliterator implements Spliterator.OfLong {
+        private final long origin;
+        private final long bound;
+
+        LongBlockSpliterator(long index, long fence, long origin, long bound) {
+            super(index, fence);
+            this.origin = origin;
+            this.bound = bound;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(generator().nextLong(origin, bound));
+            index++;
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            var mid = splitPoint();
+            if (mid < 0) {
+                return null;
+            }
+            var prefix = new LongBlockSpliterator(index, mid, origin, bound);
+            prefix.generator = generator;
+            index = mid;
+            generator = null;
+            return prefix;
+        }
+    }
+
+    private final class DoubleBlockSpliterator extends BlockSpliterator implements Spliterator.OfDouble {
+        private final double origin;
+        private final double bound;
+
+        DoubleBlockSpliterator(long index, long fence, double origin, double bound) {
+            super(index, fence);
+            this.origin = origin;
+            this.bound = bound;
+        }
+
+        @Override
+        public boolean tryAdvance(DoubleConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(generator().nextDouble(origin, bound));
+            index++;
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfDouble trySplit() {
+            var mid = splitPoint();
+            if (mid < 0) {
+                return null;
+            }
+            var prefix = new DoubleBlockSpliterator(index, mid, origin, bound);
+            prefix.generator = generator;
+            index = mid;
+            generator = null;
+            return prefix;
+        }
+    }
+}
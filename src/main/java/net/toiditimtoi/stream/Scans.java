@@ -0,0 +1,250 @@
+package net.toiditimtoi.stream;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Inclusive prefix scans: every partial result of a reduction, e.g. the running totals behind a cumulative share.
+ * Element {@code i} of the result is {@code values[0] op values[1] op ... op values[i]}.
+ * <p>
+ * Large inputs are scanned in two parallel passes over blocks of {@value #BLOCK_SIZE} elements, small enough
+ * for a block to stay in the core's cache between reading and writing:
+ * <ol>
+ *     <li>each block is reduced to its total, reading the input only,</li>
+ *     <li>the block totals are scanned sequentially, which gives each block the result of everything before it,</li>
+ *     <li>each block is scanned again starting from that offset, writing the result.</li>
+ * </ol>
+ * Unlike {@link java.util.Arrays#parallelPrefix} the input is left untouched and key extractors can be scanned
+ * without copying the keys out first. The operator must be associative; floating point addition is only nearly
+ * so, which makes parallel double scans differ from the sequential loop in the last bits.
+ */
+public final class Scans {
+
+    static final int BLOCK_SIZE = 1 << 15;
+
+    private Scans() {
+    }
+
+    public static int[] scan(int[] values, IntBinaryOperator op) {
+        var result = new int[values.length];
+        var blocks = blockCount(values.length);
+        if (blocks <= 1) {
+            scanBlock(values, op, result, 0, values.length, false, 0);
+            return result;
+        }
+        var totals = new int[blocks];
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int from = block * BLOCK_SIZE, to = Math.min(values.length, from + BLOCK_SIZE);
+            var total = values[from];
+            for (int i = from + 1; i < to; i++) {
+                total = op.applyAsInt(total, values[i]);
+            }
+            totals[block] = total;
+        });
+        for (int block = 1; block < blocks; block++) {
+            totals[block] = op.applyAsInt(totals[block - 1], totals[block]);
+        }
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int from = block * BLOCK_SIZE;
+            scanBlock(values, op, result, from, Math.min(values.length, from + BLOCK_SIZE), block > 0, block > 0 ? totals[block - 1] : 0);
+        });
+        return result;
+    }
+
+    public static long[] scan(long[] values, LongBinaryOperator op) {
+        return scan(new LongArraySource(values), op);
+    }
+
+    public static double[] scan(double[] values, DoubleBinaryOperator op) {
+        return scan(new DoubleArraySource(values), op);
+    }
+
+    /**
+     * Scans a key of each element, e.g. {@code scanLong(citiesByPopulation, City::population, Math::max)}.
+     *
+     * @param elements a list without random access is copied first
+     */
+    public static <T> long[] scanLong(List<? extends T> elements, ToLongFunction<? super T> key, LongBinaryOperator op) {
+        var indexed = randomAccess(elements);
+        return scan(new LongSource() {
+            @Override
+            public int size() {
+                return indexed.size();
+            }
+
+            @Override
+            public long get(int index) {
+                return key.applyAsLong(indexed.get(index));
+            }
+        }, op);
+    }
+
+    public static <T> double[] scanDouble(List<? extends T> elements, ToDoubleFunction<? super T> key, DoubleBinaryOperator op) {
+        var indexed = randomAccess(elements);
+        return scan(new DoubleSource() {
+            @Override
+            public int size() {
+                return indexed.size();
+            }
+
+            @Override
+            public double get(int index) {
+                return key.applyAsDouble(indexed.get(index));
+            }
+        }, op);
+    }
+
+    /**
+     * @return the running totals of a key, the last one being the total
+     */
+    public static <T> long[] runningTotals(List<? extends T> elements, ToLongFunction<? super T> key) {
+        return scanLong(elements, key, Long::sum);
+    }
+
+    private static void scanBlock(int[] values, IntBinaryOperator op, int[] result, int from, int to,
+                                  boolean hasOffset, int offset) {
+        if (from == to) {
+            return;
+        }
+        var acc = hasOffset ? op.applyAsInt(offset, values[from]) : values[from];
+        result[from] = acc;
+        for (int i = from + 1; i < to; i++) {
+            acc = op.applyAsInt(acc, values[i]);
+            result[i] = acc;
+        }
+    }
+
+    // long and double sources, so that arrays and key extractors share the two passes
+
+    private interface LongSource {
+        int size();
+
+        long get(int index);
+    }
+
+    private record LongArraySource(long[] values) implements LongSource {
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public long get(int index) {
+            return values[index];
+        }
+    }
+
+    private static long[] scan(LongSource source, LongBinaryOperator op) {
+        var size = source.size();
+        var result = new long[size];
+        var blocks = blockCount(size);
+        if (blocks <= 1) {
+            scanBlock(source, op, result, 0, size, false, 0);
+            return result;
+        }
+        var totals = new long[blocks];
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int from = block * BLOCK_SIZE, to = Math.min(size, from + BLOCK_SIZE);
+            var total = source.get(from);
+            for (int i = from + 1; i < to; i++) {
+                total = op.applyAsLong(total, source.get(i));
+            }
+            totals[block] = total;
+        });
+        for (int block = 1; block < blocks; block++) {
+            totals[block] = op.applyAsLong(totals[block - 1], totals[block]);
+        }
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int from = block * BLOCK_SIZE;
+            scanBlock(source, op, result, from, Math.min(size, from + BLOCK_SIZE), block > 0, block > 0 ? totals[block - 1] : 0);
+        });
+        return result;
+    }
+
+    private static void scanBlock(LongSource source, LongBinaryOperator op, long[] result, int from, int to,
+                                  boolean hasOffset, long offset) {
+        if (from == to) {
+            return;
+        }
+        var acc = hasOffset ? op.applyAsLong(offset, source.get(from)) : source.get(from);
+        result[from] = acc;
+        for (int i = from + 1; i < to; i++) {
+            acc = op.applyAsLong(acc, source.get(i));
+            result[i] = acc;
+        }
+    }
+
+    private interface DoubleSource {
+        int size();
+
+        double get(int index);
+    }
+
+    private record DoubleArraySource(double[] values) implements DoubleSource {
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public double get(int index) {
+            return values[index];
+        }
+    }
+
+    private static double[] scan(DoubleSource source, DoubleBinaryOperator op) {
+        var size = source.size();
+        var result = new double[size];
+        var blocks = blockCount(size);
+        if (blocks <= 1) {
+            scanBlock(source, op, result, 0, size, false, 0);
+            return result;
+        }
+        var totals = new double[blocks];
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int from = block * BLOCK_SIZE, to = Math.min(size, from + BLOCK_SIZE);
+            var total = source.get(from);
+            for (int i = from + 1; i < to; i++) {
+                total = op.applyAsDouble(total, source.get(i));
+            }
+            totals[block] = total;
+        });
+        for (int block = 1; block < blocks; block++) {
+            totals[block] = op.applyAsDouble(totals[block - 1], totals[block]);
+        }
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int from = block * BLOCK_SIZE;
+            scanBlock(source, op, result, from, Math.min(size, from + BLOCK_SIZE), block > 0, block > 0 ? totals[block - 1] : 0);
+        });
+        return result;
+    }
+
+    private static void scanBlock(DoubleSource source, DoubleBinaryOperator op, double[] result, int from, int to,
+                                  boolean hasOffset, double offset) {
+        if (from == to) {
+            return;
+        }
+        var acc = hasOffset ? op.applyAsDouble(offset, source.get(from)) : source.get(from);
+        result[from] = acc;
+        for (int i = from + 1; i < to; i++) {
+            acc = op.applyAsDouble(acc, source.get(i));
+            result[i] = acc;
+        }
+    }
+
+    private static int blockCount(int size) {
+        return (int) ((size + (long) BLOCK_SIZE - 1) / BLOCK_SIZE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<? extends T> randomAccess(List<? extends T> elements) {
+        return elements instanceof RandomAccess ? elements : (List<? extends T>) Arrays.asList(elements.toArray());
+    }
+}
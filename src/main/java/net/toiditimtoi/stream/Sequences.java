@@ -0,0 +1,418 @@
+package net.toiditimtoi.stream;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongUnaryOperator;
+import java.util.function.UnaryOperator;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Sized, splittable replacements for {@code Stream.iterate}.
+ * {@code iterate} only knows how to go from one element to the next, so its spliterator has no size and can
+ * only be split by buffering prefixes. When the n-th element can be computed directly from the seed
+ * (a "jump" function), a range of indices can be cut in half in O(1) and each half starts at the right value.
+ * Sequential traversal still uses the cheap step function, the jump is only evaluated at split points.
+ */
+public final class Sequences {
+
+    private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED
+            | Spliterator.IMMUTABLE;
+
+    private Sequences() {
+    }
+
+    /**
+     * Computes the element that is {@code steps} steps after {@code seed}.
+     */
+    @FunctionalInterface
+    public interface Jump<T> {
+        T apply(T seed, long steps);
+    }
+
+    @FunctionalInterface
+    public interface IntJump {
+        int apply(int seed, long steps);
+    }
+
+    @FunctionalInterface
+    public interface LongJump {
+        long apply(long seed, long steps);
+    }
+
+    @FunctionalInterface
+    public interface DoubleJump {
+        double apply(double seed, long steps);
+    }
+
+    // generic closed-form iterate
+
+    public static <T> Stream<T> iterate(T seed, long count, UnaryOperator<T> next, Jump<T> jump) {
+        return StreamSupport.stream(new JumpSpliterator<>(seed, next, jump, 0, checkCount(count)), false);
+    }
+
+    public static IntStream iterateInt(int seed, long count, IntUnaryOperator next, IntJump jump) {
+        return StreamSupport.intStream(new IntJumpSpliterator(seed, next, jump, 0, checkCount(count)), false);
+    }
+
+    public static LongStream iterateLong(long seed, long count, LongUnaryOperator next, LongJump jump) {
+        return StreamSupport.longStream(new LongJumpSpliterator(seed, next, jump, 0, checkCount(count)), false);
+    }
+
+    public static DoubleStream iterateDouble(double seed, long count, DoubleUnaryOperator next, DoubleJump jump) {
+        return StreamSupport.doubleStream(new DoubleJumpSpliterator(seed, next, jump, 0, checkCount(count)), false);
+    }
+
+    // arithmetic sequences: first, first + step, first + 2 * step, ...
+
+    /**
+     * Same elements as {@code IntStream.iterate(first, i -> i + step).limit(count)}, overflow included.
+     */
+    public static IntStream arithmetic(int first, int step, long count) {
+        return iterateInt(first, count, i -> i + step, (seed, n) -> (int) (seed + step * n));
+    }
+
+    public static LongStream arithmetic(long first, long step, long count) {
+        return iterateLong(first, count, i -> i + step, (seed, n) -> seed + step * n);
+    }
+
+    /**
+     * Every element is computed as {@code first + index * step}, so unlike repeated addition the rounding error
+     * does not accumulate and a parallel run yields exactly the same values as a sequential one.
+     */
+    public static DoubleStream arithmetic(double first, double step, long count) {
+        return iterateDouble(first, count, null, (seed, n) -> seed + step * n);
+    }
+
+    /**
+     * Same elements as {@code IntStream.iterate(start, i -> i < bound, i -> i + step)} for a positive step,
+     * or {@code i > bound} for a negative one.
+     */
+    public static IntStream range(int start, int bound, int step) {
+        return arithmetic(start, step, countBetween(start, bound, step));
+    }
+
+    public static LongStream range(long start, long bound, long step) {
+        return arithmetic(start, step, countBetween(start, bound, step));
+    }
+
+    // geometric sequences: first, first * ratio, first * ratio^2, ...
+
+    /**
+     * Same elements as {@code LongStream.iterate(first, i -> i * ratio).limit(count)}, overflow included.
+     */
+    public static LongStream geometric(long first, long ratio, long count) {
+        return iterateLong(first, count, i -> i * ratio, (seed, n) -> seed * pow(ratio, n));
+    }
+
+    /**
+     * Steps by multiplication and re-anchors with {@link Math#pow} at every split,
+     * so elements may differ from a sequential run in the last bits.
+     */
+    public static DoubleStream geometric(double first, double ratio, long count) {
+        return iterateDouble(first, count, d -> d * ratio, (seed, n) -> seed * Math.pow(ratio, n));
+    }
+
+    /**
+     * {@code base^exponent} with the same wrap-around as repeated {@code long} multiplication.
+     */
+    static long pow(long base, long exponent) {
+        long result = 1;
+        while (exponent > 0) {
+            if ((exponent & 1) == 1) {
+                result *= base;
+            }
+            base *= base;
+            exponent >>>= 1;
+        }
+        return result;
+    }
+
+    static long countBetween(long start, long bound, long step) {
+        if (step == 0) {
+            throw new IllegalArgumentException("step must not be 0");
+        }
+        if (step > 0 && start < bound) {
+            return ceilDiv(bound - start, step);
+        }
+        if (step < 0 && start > bound) {
+            return ceilDiv(start - bound, -step);
+        }
+        return 0;
+    }
+
+    private static long ceilDiv(long distance, long step) {
+        // distance may have overflowed when start and bound have opposite signs, treat it as unsigned
+        return Long.divideUnsigned(distance - 1, step) + 1;
+    }
+
+    private static long checkCount(long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Covers the indices [index, fence). The value at {@code index} is only computed on first use, so a split that
+     * is never traversed costs nothing. A null step function means every element is computed with the jump.
+     */
+    private abstract static class AbstractJumpSpliterator {
+        long index;
+        final long fence;
+        boolean positioned;
+
+        AbstractJumpSpliterator(long index, long fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        public long getExactSizeIfKnown() {
+            return fence - index;
+        }
+
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+
+        /**
+         * @return the first index of the upper half, or -1 when the range is too small to split
+         */
+        long splitPoint() {
+            var mid = (index + fence) >>> 1;
+            return mid <= index ? -1 : mid;
+        }
+    }
+
+    private static final class JumpSpliterator<T> extends AbstractJumpSpliterator implements Spliterator<T> {
+        private final T seed;
+        private final UnaryOperator<T> next;
+        private final Jump<T> jump;
+        private T current;
+
+        JumpSpliterator(T seed, UnaryOperator<T> next, Jump<T> jump, long index, long fence) {
+            super(index, fence);
+            this.seed = seed;
+            this.next = next;
+            this.jump = jump;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(advance());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            while (index < fence) {
+                action.accept(advance());
+            }
+        }
+
+        private T advance() {
+            if (!positioned || next == null) {
+                current = jump.apply(seed, index);
+                positioned = true;
+            } else {
+                current = next.apply(current);
+            }
+            index++;
+            return current;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            var mid = splitPoint();
+            if (mid < 0) {
+                return null;
+            }
+            var prefix = new JumpSpliterator<>(seed, next, jump, index, mid);
+            prefix.current = current;
+            prefix.positioned = positioned;
+            index = mid;
+            positioned = false;
+            return prefix;
+        }
+    }
+
+    private static final class IntJumpSpliterator extends AbstractJumpSpliterator implements Spliterator.OfInt {
+        private final int seed;
+        private final IntUnaryOperator next;
+        private final IntJump jump;
+        private int current;
+
+        IntJumpSpliterator(int seed, IntUnaryOperator next, IntJump jump, long index, long fence) {
+            super(index, fence);
+            this.seed = seed;
+            this.next = next;
+            this.jump = jump;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(advance());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            while (index < fence) {
+                action.accept(advance());
+            }
+        }
+
+        private int advance() {
+            if (!positioned || next == null) {
+                current = jump.apply(seed, index);
+                positioned = true;
+            } else {
+                current = next.applyAsInt(current);
+            }
+            index++;
+            return current;
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            var mid = splitPoint();
+            if (mid < 0) {
+                return null;
+            }
+            var prefix = new IntJumpSpliterator(seed, next, jump, index, mid);
+            prefix.current = current;
+            prefix.positioned = positioned;
+            index = mid;
+            positioned = false;
+            return prefix;
+        }
+    }
+
+    private static final class LongJumpSpliterator extends AbstractJumpSpliterator implements Spliterator.OfLong {
+        private final long seed;
+        private final LongUnaryOperator next;
+        private final LongJump jump;
+        private long current;
+
+        LongJumpSpliterator(long seed, LongUnaryOperator next, LongJump jump, long index, long fence) {
+            super(index, fence);
+            this.seed = seed;
+            this.next = next;
+            this.jump = jump;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(advance());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            while (index < fence) {
+                action.accept(advance());
+            }
+        }
+
+        private long advance() {
+            if (!positioned || next == null) {
+                current = jump.apply(seed, index);
+                positioned = true;
+            } else {
+                current = next.applyAsLong(current);
+            }
+            index++;
+            return current;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            var mid = splitPoint();
+            if (mid < 0) {
+                return null;
+            }
+            var prefix = new LongJumpSpliterator(seed, next, jump, index, mid);
+            prefix.current = current;
+            prefix.positioned = positioned;
+            index = mid;
+            positioned = false;
+            return prefix;
+        }
+    }
+
+    private static final class DoubleJumpSpliterator extends AbstractJumpSpliterator implements Spliterator.OfDouble {
+        private final double seed;
+        private final DoubleUnaryOperator next;
+        private final DoubleJump jump;
+        private double current;
+
+        DoubleJumpSpliterator(double seed, DoubleUnaryOperator next, DoubleJump jump, long index, long fence) {
+            super(index, fence);
+            this.seed = seed;
+            this.next = next;
+            this.jump = jump;
+        }
+
+        @Override
+        public boolean tryAdvance(DoubleConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(advance());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(DoubleConsumer action) {
+            while (index < fence) {
+                action.accept(advance());
+            }
+        }
+
+        private double advance() {
+            if (!positioned || next == null) {
+                current = jump.apply(seed, index);
+                positioned = true;
+            } else {
+                current = next.applyAsDouble(current);
+            }
+            index++;
+            return current;
+        }
+
+        @Override
+        public Spliterator.OfDouble trySplit() {
+            var mid = splitPoint();
+            if (mid < 0) {
+                return null;
+            }
+            var prefix = new DoubleJumpSpliterator(seed, next, jump, index, mid);
+            prefix.current = current;
+            prefix.positioned = positioned;
+            index = mid;
+            positioned = false;
+            return prefix;
+        }
+    }
+}
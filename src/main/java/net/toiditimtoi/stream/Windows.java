@@ -0,0 +1,381 @@
+package net.toiditimtoi.stream;
+
+import net.toiditimtoi.collection.IncrementalCollector;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Sequence-shaped operators beyond {@code limit}, {@code skip}, {@code takeWhile} and {@code dropWhile}:
+ * fixed-size chunks, sliding windows, runs of adjacent elements and folds over windows.
+ * <p>
+ * All of them are lazy and hold at most one window (or run) of elements at a time. Chunks and sliding windows
+ * split like their source when it knows the exact size of its halves: the split is moved to the next window
+ * boundary, and the few elements a window shares with the other half are copied across, so a parallel stream
+ * of windows gives the same windows as a sequential one. Runs can only be found in order, their streams split
+ * by handing batches of finished runs to other threads.
+ * <pre>{@code
+ * Windows.chunked(cities, 1_000).forEach(repository::insertBatch);
+ * var movingAverages = Windows.sliding(populations, 5, IncrementalCollectors.averagingInt(Integer::intValue));
+ * }</pre>
+ */
+public final class Windows {
+
+    private Windows() {
+    }
+
+    /**
+     * @return consecutive lists of {@code size} elements, the last one may be shorter
+     */
+    public static <T> Stream<List<T>> chunked(Stream<T> source, int size) {
+        checkSize(size, "size");
+        return windows(source, size, size, true, ListFolder::new);
+    }
+
+    /**
+     * Collects each chunk on its own, without building a list of it first.
+     */
+    public static <T, A, R> Stream<R> chunked(Stream<T> source, int size, Collector<? super T, A, R> collector) {
+        checkSize(size, "size");
+        Objects.requireNonNull(collector);
+        return windows(source, size, size, true, () -> new CollectorFolder<>(collector));
+    }
+
+    /**
+     * @return every run of {@code size} consecutive elements, nothing if there are fewer elements than that
+     */
+    public static <T> Stream<List<T>> sliding(Stream<T> source, int size) {
+        return sliding(source, size, 1);
+    }
+
+    /**
+     * @param step how far each window starts after the previous one; elements between windows are skipped
+     * when it is larger than the size
+     */
+    public static <T> Stream<List<T>> sliding(Stream<T> source, int size, int step) {
+        checkSize(size, "size");
+        checkSize(step, "step");
+        return windows(source, size, step, false, ListFolder::new);
+    }
+
+    /**
+     * Folds every window of {@code size} consecutive elements, updating one container as elements enter and leave
+     * the window, so each element costs one add and one remove whatever the window size. Moving averages are
+     * {@code sliding(values, n, IncrementalCollectors.averagingInt(...))}.
+     */
+    public static <T, A, R> Stream<R> sliding(Stream<T> source, int size, IncrementalCollector<? super T, A, R> collector) {
+        checkSize(size, "size");
+        Objects.requireNonNull(collector);
+        return windows(source, size, 1, false, () -> new IncrementalFolder<>(collector));
+    }
+
+    /**
+     * Groups adjacent elements while {@code sameRun} holds for each element and the one before it.
+     */
+    public static <T> Stream<List<T>> runs(Stream<T> source, BiPredicate<? super T, ? super T> sameRun) {
+        Objects.requireNonNull(sameRun);
+        var runs = new RunSpliterator<>(source.spliterator(), sameRun);
+        return StreamSupport.stream(runs, source.isParallel()).onClose(source::close);
+    }
+
+    /**
+     * Groups adjacent elements with equal keys, e.g. the cities of a list sorted by area, area after area.
+     */
+    public static <T, K> Stream<List<T>> runsBy(Stream<T> source, Function<? super T, ? extends K> key) {
+        Objects.requireNonNull(key);
+        return runs(source, (previous, next) -> Objects.equals(key.apply(previous), key.apply(next)));
+    }
+
+    private static <T, R> Stream<R> windows(Stream<T> source, int size, int step, boolean partial,
+                                            Supplier<? extends Folder<T, R>> folders) {
+        var windows = new WindowSpliterator<>(List.of(), source.spliterator(), List.of(), size, step, partial, folders);
+        return StreamSupport.stream(windows, source.isParallel()).onClose(source::close);
+    }
+
+    private static void checkSize(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+    }
+
+    /**
+     * Turns the current window into a result. {@code enter} and {@code leave} see every element that is added to
+     * or evicted from the window, in order.
+     */
+    interface Folder<T, R> {
+        default void enter(T element) {
+        }
+
+        default void leave(T element) {
+        }
+
+        R result(List<T> window);
+    }
+
+    private static final class ListFolder<T> implements Folder<T, List<T>> {
+        @Override
+        public List<T> result(List<T> window) {
+            return Collections.unmodifiableList(new ArrayList<>(window));
+        }
+    }
+
+    private record CollectorFolder<T, A, R>(Collector<? super T, A, R> collector) implements Folder<T, R> {
+        @Override
+        public R result(List<T> window) {
+            var container = collector.supplier().get();
+            var accumulator = collector.accumulator();
+            for (var element : window) {
+                accumulator.accept(container, element);
+            }
+            return collector.finisher().apply(container);
+        }
+    }
+
+    private static final class IncrementalFolder<T, A, R> implements Folder<T, R> {
+        private final IncrementalCollector<? super T, A, R> collector;
+        private final A container;
+
+        IncrementalFolder(IncrementalCollector<? super T, A, R> collector) {
+            this.collector = collector;
+            this.container = collector.create();
+        }
+
+        @Override
+        public void enter(T element) {
+            collector.add(container, element);
+        }
+
+        @Override
+        public void leave(T element) {
+            collector.remove(container, element);
+        }
+
+        @Override
+        public R result(List<T> window) {
+            return collector.finish(container);
+        }
+    }
+
+    /**
+     * Windows start every {@code step} elements and hold {@code size} elements. The elements come from
+     * {@code head}, then {@code source}, then {@code tail}; head and tail are what a split copied from
+     * the neighbouring half.
+     */
+    static final class WindowSpliterator<T, R> implements Spliterator<R> {
+        private final Spliterator<T> source;
+        private final int size;
+        private final int step;
+        private final boolean partial;
+        private final Supplier<? extends Folder<T, R>> folders;
+        private final List<T> tail;
+        private List<T> head;
+        private int headIndex;
+        private int tailIndex;
+
+        // the current window, a ring of size elements
+        private Folder<T, R> folder;
+        private final Object[] ring;
+        private int ringStart;
+        private int ringCount;
+        private final List<T> windowView = new AbstractList<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public T get(int index) {
+                Objects.checkIndex(index, ringCount);
+                return (T) ring[(ringStart + index) % ring.length];
+            }
+
+            @Override
+            public int size() {
+                return ringCount;
+            }
+        };
+        private long skip;
+        private boolean started;
+        private long windowsLeft = -1;
+        private T pulled;
+
+        WindowSpliterator(List<T> head, Spliterator<T> source, List<T> tail, int size, int step, boolean partial,
+                          Supplier<? extends Folder<T, R>> folders) {
+            this.head = head;
+            this.source = source;
+            this.tail = tail;
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+            this.folders = folders;
+            this.ring = new Object[size];
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            if (!started) {
+                started = true;
+                windowsLeft = exactWindows();
+                folder = folders.get();
+            }
+            for (; skip > 0; skip--) {
+                if (!pull()) {
+                    return false;
+                }
+            }
+            while (ringCount < size && pull()) {
+                ring[(ringStart + ringCount++) % size] = pulled;
+                folder.enter(pulled);
+            }
+            pulled = null;
+            if (ringCount == 0 || ringCount < size && !partial) {
+                return false;
+            }
+
+            action.accept(folder.result(windowView));
+            if (windowsLeft > 0) {
+                windowsLeft--;
+            }
+            evict(Math.min(step, ringCount));
+            skip = Math.max(0, step - size);
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void evict(int count) {
+            for (int i = 0; i < count; i++) {
+                folder.leave((T) ring[ringStart]);
+                ring[ringStart] = null;
+                ringStart = (ringStart + 1) % size;
+                ringCount--;
+            }
+        }
+
+        private boolean pull() {
+            if (headIndex < head.size()) {
+                pulled = head.get(headIndex++);
+                return true;
+            }
+            if (source.tryAdvance(element -> pulled = element)) {
+                return true;
+            }
+            if (tailIndex < tail.size()) {
+                pulled = tail.get(tailIndex++);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Moves the split point forward to the first window that starts in the second half. The first half
+         * gets a copy of the elements its last window needs from the second half, the second half drops
+         * the elements in front of its first window.
+         */
+        @Override
+        public Spliterator<R> trySplit() {
+            if (started || !source.hasCharacteristics(Spliterator.SUBSIZED)) {
+                return null;
+            }
+            var prefixSource = source.trySplit();
+            if (prefixSource == null) {
+                return null;
+            }
+            var prefixHead = head.subList(headIndex, head.size());
+            long splitAt = prefixHead.size() + prefixSource.getExactSizeIfKnown();
+            long firstSuffixWindow = (splitAt + step - 1) / step * step;
+            long prefixEnd = partial ? firstSuffixWindow : firstSuffixWindow - step + size;
+
+            head = List.of();
+            headIndex = 0;
+            var borrowed = new ArrayList<T>();
+            for (long i = splitAt; i < Math.max(firstSuffixWindow, prefixEnd) && pull(); i++) {
+                borrowed.add(pulled);
+            }
+            pulled = null;
+            var prefixTail = borrowed.subList(0, (int) Math.min(borrowed.size(), Math.max(0, prefixEnd - splitAt)));
+            head = new ArrayList<>(borrowed.subList((int) Math.min(borrowed.size(), firstSuffixWindow - splitAt), borrowed.size()));
+            return new WindowSpliterator<>(new ArrayList<>(prefixHead), prefixSource, new ArrayList<>(prefixTail),
+                    size, step, partial, folders);
+        }
+
+        private long exactWindows() {
+            var sourceSize = source.getExactSizeIfKnown();
+            if (sourceSize < 0) {
+                return -1;
+            }
+            long elements = head.size() - headIndex + sourceSize + tail.size() - tailIndex;
+            if (partial) {
+                return (elements + step - 1) / step;
+            }
+            return elements < size ? 0 : (elements - size) / step + 1;
+        }
+
+        @Override
+        public long estimateSize() {
+            if (started) {
+                return windowsLeft >= 0 ? windowsLeft : source.estimateSize() / step;
+            }
+            var exact = exactWindows();
+            return exact >= 0 ? exact : source.estimateSize() / step;
+        }
+
+        @Override
+        public int characteristics() {
+            var sized = source.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED)
+                    ? Spliterator.SIZED | Spliterator.SUBSIZED : 0;
+            return source.characteristics() & Spliterator.ORDERED | sized;
+        }
+    }
+
+    /**
+     * Batch splitting from {@link Spliterators.AbstractSpliterator}, since a run may always continue
+     * past any split point.
+     */
+    private static final class RunSpliterator<T> extends Spliterators.AbstractSpliterator<List<T>> {
+        private final Spliterator<T> source;
+        private final BiPredicate<? super T, ? super T> sameRun;
+        private boolean hasNext;
+        private T next;
+
+        RunSpliterator(Spliterator<T> source, BiPredicate<? super T, ? super T> sameRun) {
+            super(source.estimateSize(), source.characteristics() & Spliterator.ORDERED | Spliterator.NONNULL);
+            this.source = source;
+            this.sameRun = sameRun;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<T>> action) {
+            if (!hasNext && !source.tryAdvance(this::setNext)) {
+                return false;
+            }
+            var run = new ArrayList<T>();
+            run.add(next);
+            hasNext = false;
+            while (source.tryAdvance(this::setNext)) {
+                if (!sameRun.test(run.get(run.size() - 1), next)) {
+                    break;
+                }
+                run.add(next);
+                hasNext = false;
+            }
+            if (!hasNext) {
+                next = null;
+            }
+            action.accept(Collections.unmodifiableList(run));
+            return true;
+        }
+
+        private void setNext(T element) {
+            next = element;
+            hasNext = true;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package net.toiditimtoi.workload;
+
+import java.util.Comparator;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The aggregation pipelines the workload runner can drive, modelled on the queries of {@code CollectingResultTest}.
+ */
+public enum AggregationPipeline {
+
+    GROUPING {
+        @Override
+        public Object run(Stream<City> cities) {
+            return cities.collect(Collectors.groupingBy(City::area, Collectors.summarizingInt(City::population)));
+        }
+    },
+    TEEING {
+        @Override
+        public Object run(Stream<City> cities) {
+            return cities.collect(Collectors.groupingBy(City::area, Collectors.teeing(
+                    Collectors.summingLong(City::population),
+                    Collectors.filtering(city -> city.name().length() > 6, Collectors.counting()),
+                    TotalAndCount::new
+            )));
+        }
+    },
+    TOP_K {
+        @Override
+        public Object run(Stream<City> cities) {
+            return cities.sorted(Comparator.comparingInt(City::population).reversed())
+                    .limit(TOP_K_SIZE)
+                    .toList();
+        }
+    },
+    PARTITIONING {
+        @Override
+        public Object run(Stream<City> cities) {
+            return cities.collect(Collectors.partitioningBy(city -> city.population() > 1_000_000, Collectors.counting()));
+        }
+    };
+
+    static final int TOP_K_SIZE = 100;
+
+    record TotalAndCount(long totalPopulation, long longNameCount) {}
+
+    public abstract Object run(Stream<City> cities);
+
+    /**
+     * A hash of a result that is the same in every run, to compare results across runs and modes. The
+     * {@code hashCode()} of a result is not: enums and {@link IntSummaryStatistics} hash by identity, so it changes
+     * from one JVM to the next.
+     */
+    public static int resultHash(Object result) {
+        if (result instanceof Enum<?> constant) {
+            return constant.name().hashCode();
+        }
+        if (result instanceof Map<?, ?> map) {
+            // like Map.hashCode, independent of the iteration order
+            var hash = 0;
+            for (var entry : map.entrySet()) {
+                hash += resultHash(entry.getKey()) ^ resultHash(entry.getValue());
+            }
+            return hash;
+        }
+        if (result instanceof List<?> list) {
+            var hash = 1;
+            for (var element : list) {
+                hash = 31 * hash + resultHash(element);
+            }
+            return hash;
+        }
+        if (result instanceof City city) {
+            return Objects.hash(city.name(), resultHash(city.area()), city.population());
+        }
+        if (result instanceof IntSummaryStatistics statistics) {
+            return Objects.hash(statistics.getCount(), statistics.getSum(), statistics.getMin(), statistics.getMax());
+        }
+        return Objects.hashCode(result);
+    }
+}
@@ -0,0 +1,5 @@
+package net.toiditimtoi.workload;
+
+public enum Area {
+    NORTH, SOUTH, MIDDLE, OTHER
+}
@@ -0,0 +1,3 @@
+package net.toiditimtoi.workload;
+
+public record City(String name, Area area, int population) {}
@@ -0,0 +1,61 @@
+package net.toiditimtoi.workload;
+
+import net.toiditimtoi.stream.RandomStreams;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Synthetic or file-based city datasets for the workload runner.
+ */
+public final class CityDataset {
+
+    private static final int MAX_POPULATION = 20_000_000;
+
+    private CityDataset() {
+    }
+
+    /**
+     * Generates the same cities for the same seed, whatever the number of cores.
+     */
+    public static List<City> generate(int size, long seed) {
+        var random = new RandomStreams(seed);
+        var areas = new int[size];
+        random.fill(areas, 0, Area.values().length);
+        var populations = new int[size];
+        new RandomStreams(seed + 1).fill(populations, 1_000, MAX_POPULATION);
+
+        var cities = new City[size];
+        Arrays.parallelSetAll(cities, i -> new City("City " + i, Area.values()[areas[i]], populations[i]));
+        return Arrays.asList(cities);
+    }
+
+    /**
+     * Reads {@code name,area,population} lines, blank lines and lines starting with {@code #} are skipped.
+     */
+    public static List<City> load(Path csv) throws IOException {
+        var cities = new ArrayList<City>();
+        try (var lines = Files.lines(csv)) {
+            lines.map(String::strip)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .forEach(line -> cities.add(parse(line)));
+        }
+        return cities;
+    }
+
+    public static void save(List<City> cities, Path csv) throws IOException {
+        Files.write(csv, cities.stream().map(city -> city.name() + "," + city.area() + "," + city.population()).toList());
+    }
+
+    static City parse(String line) {
+        var fields = line.split(",");
+        if (fields.length != 3) {
+            throw new IllegalArgumentException("Expected name,area,population but got: " + line);
+        }
+        return new City(fields[0].strip(), Area.valueOf(fields[1].strip()), Integer.parseInt(fields[2].strip()));
+    }
+}
@@ -0,0 +1,41 @@
+package net.toiditimtoi.workload;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Wall clock, GC count and bytes allocated by all live threads at one point in time.
+ * The difference of two snapshots describes what a run cost.
+ */
+public record ResourceSnapshot(long nanoTime, long gcCount, long allocatedBytes) {
+
+    public static ResourceSnapshot take() {
+        long gcCount = 0;
+        for (var gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+        }
+        return new ResourceSnapshot(System.nanoTime(), gcCount, liveThreadsAllocatedBytes());
+    }
+
+    /**
+     * @return the bytes allocated so far by the threads alive now, or -1 if the JVM cannot tell.
+     * Threads that died in between are not counted, which is fine for fork/join workers that stay alive.
+     */
+    private static long liveThreadsAllocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (var bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    public ResourceSnapshot since(ResourceSnapshot start) {
+        return new ResourceSnapshot(nanoTime - start.nanoTime, gcCount - start.gcCount,
+                allocatedBytes < 0 || start.allocatedBytes < 0 ? -1 : allocatedBytes - start.allocatedBytes);
+    }
+}
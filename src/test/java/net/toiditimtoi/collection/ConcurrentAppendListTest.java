@@ -0,0 +1,143 @@
+package net.toiditimtoi.collection;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentAppendListTest {
+
+    @Test
+    public void modifyingTheBackingCollection() {
+        // the same scenario as StreamApiTest.modifyingTheBackingCollection, which is undefined for an ArrayList
+        var mySource = new ConcurrentAppendList<>(List.of(1, 2, 3, 4, 5));
+
+        var myStream = mySource.stream();
+        mySource.add(8);
+        assertEquals(List.of(1, 2, 3, 4, 5), myStream.toList());
+
+        var seen = new ArrayList<Integer>();
+        mySource.stream().forEach(i -> {
+            seen.add(i);
+            if (i % 2 == 0) mySource.add(i * 10);
+        });
+        assertEquals(List.of(1, 2, 3, 4, 5, 8), seen);
+        assertEquals(List.of(1, 2, 3, 4, 5, 8, 20, 40, 80), mySource);
+    }
+
+    @Test
+    public void snapshotIsNotAffectedBySet() {
+        var list = new ConcurrentAppendList<String>();
+        list.addAll(List.of("Ha Noi", "Vinh", "Hue"));
+        var snapshot = list.snapshot();
+
+        assertEquals("Vinh", list.set(1, "Da Nang"));
+        assertEquals("Vinh", snapshot.get(1));
+        assertEquals("Da Nang", list.get(1));
+        assertThrows(UnsupportedOperationException.class, () -> list.remove(0));
+        assertThrows(UnsupportedOperationException.class, () -> list.add(0, "Can Tho"));
+    }
+
+    @Test
+    public void snapshotSplitsAlongChunks() {
+        var list = new ConcurrentAppendList<Integer>();
+        IntStream.range(0, 10 * ConcurrentAppendList.CHUNK_SIZE + 17).forEach(list::add);
+
+        var spliterator = list.spliterator();
+        var prefix = spliterator.trySplit();
+        assertEquals(0, prefix.estimateSize() % ConcurrentAppendList.CHUNK_SIZE);
+        assertEquals(list.size(), prefix.estimateSize() + spliterator.estimateSize());
+
+        long expected = (long) list.size() * (list.size() - 1) / 2;
+        assertEquals(expected, list.parallelStream().mapToLong(Integer::longValue).sum());
+    }
+
+    @Test
+    public void readersSeeConsistentPrefixesWhileWritersAppend() throws Exception {
+        var list = new ConcurrentAppendList<Integer>();
+        var done = new AtomicBoolean();
+        var writer = new Thread(() -> {
+            for (int i = 0; i < 500_000; i++) {
+                list.add(i);
+            }
+            done.set(true);
+        });
+        writer.start();
+        while (!done.get()) {
+            var snapshot = list.snapshot();
+            var n = snapshot.size();
+            // every snapshot must be exactly 0, 1, ..., n - 1
+            assertEquals((long) n * (n - 1) / 2, snapshot.parallelStream().mapToLong(Integer::longValue).sum());
+        }
+        writer.join();
+        assertEquals(500_000, list.size());
+    }
+
+    /**
+     * Two writers append while two readers repeatedly stream a sum over the whole list.
+     */
+    @Test
+    @Tag("benchmark")
+    public void mixedLoadBenchmark() throws Exception {
+        for (int round = 0; round < 2; round++) {
+            System.out.println("Round " + round
+                    + ": ConcurrentAppendList " + mixedLoad(new ConcurrentAppendList<>(), list -> list) + " ms"
+                    + ", CopyOnWriteArrayList " + mixedLoad(new CopyOnWriteArrayList<>(), list -> list) + " ms"
+                    + ", synchronized ArrayList " + mixedLoad(Collections.synchronizedList(new ArrayList<>()), list -> {
+                        synchronized (list) {
+                            return new ArrayList<>(list);
+                        }
+                    }) + " ms");
+        }
+    }
+
+    private long mixedLoad(List<Integer> list, Function<List<Integer>, List<Integer>> readable) throws Exception {
+        var appendsPerWriter = 20_000;
+        var readsPerReader = 200;
+        var start = new CountDownLatch(1);
+        var checksum = new AtomicLong();
+        var threads = new ArrayList<Thread>();
+        for (int w = 0; w < 2; w++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < appendsPerWriter; i++) {
+                    list.add(i);
+                }
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < readsPerReader; i++) {
+                    checksum.addAndGet(readable.apply(list).stream().mapToLong(Integer::longValue).sum());
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        var begin = System.nanoTime();
+        start.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertEquals(2 * appendsPerWriter, list.size());
+        return (System.nanoTime() - begin) / 1_000_000;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
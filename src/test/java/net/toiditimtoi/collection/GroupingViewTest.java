@@ -0,0 +1,188 @@
+package net.toiditimtoi.collection;
+
+import net.toiditimtoi.workload.Area;
+import net.toiditimtoi.workload.City;
+import net.toiditimtoi.workload.CityDataset;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupingViewTest {
+
+    record Pair<T, S>(T first, S second) {}
+
+    @Test
+    public void followsInsertsUpdatesAndDeletes() {
+        var cities = new ArrayList<>(CityDataset.generate(20_000, 5));
+        var averages = GroupingView.groupingBy(City::area, IncrementalCollectors.averagingInt(City::population));
+        var statistics = GroupingView.groupingBy(City::area, IncrementalCollectors.summarizingInt(City::population));
+        var largest = GroupingView.groupingBy(City::area, IncrementalCollectors.maxBy(Comparator.comparingInt(City::population)));
+        var smallest = GroupingView.groupingBy(City::area, IncrementalCollectors.minBy(Comparator.comparingInt(City::population)));
+        var tee = GroupingView.groupingBy(City::area, IncrementalCollectors.teeing(
+                IncrementalCollectors.summingInt(City::population),
+                IncrementalCollectors.filtering((City city) -> city.name().length() > 6, IncrementalCollectors.counting()),
+                Pair::new
+        ));
+        List<GroupingView<City, Area, ?>> views = List.of(averages, statistics, largest, smallest, tee);
+        views.forEach(view -> view.insertAll(cities));
+
+        var random = new Random(11);
+        for (int round = 0; round < 20; round++) {
+            var changes = new ArrayList<GroupingView.Change<City>>();
+            for (int i = 0; i < 300; i++) {
+                var index = random.nextInt(cities.size());
+                var before = cities.get(index);
+                switch (random.nextInt(3)) {
+                    case 0 -> {
+                        var after = new City("New " + round + "-" + i, Area.values()[random.nextInt(4)], random.nextInt(20_000_000));
+                        cities.add(after);
+                        changes.add(GroupingView.Change.insert(after));
+                    }
+                    case 1 -> {
+                        // also moves cities from one area to another
+                        var after = new City(before.name(), Area.values()[random.nextInt(4)], before.population() + random.nextInt(1_000));
+                        cities.set(index, after);
+                        changes.add(GroupingView.Change.update(before, after));
+                    }
+                    default -> {
+                        cities.set(index, cities.get(cities.size() - 1));
+                        cities.remove(cities.size() - 1);
+                        changes.add(GroupingView.Change.delete(before));
+                    }
+                }
+            }
+            views.forEach(view -> view.apply(changes));
+
+            assertEquals(recompute(cities, Collectors.averagingInt(City::population)), averages.snapshot());
+            // IntSummaryStatistics has no equals, compare the printed results
+            assertEquals(printed(recompute(cities, Collectors.summarizingInt(City::population))), printed(statistics.snapshot()));
+            // ties may pick different cities, the populations must agree
+            assertEquals(populations(recompute(cities, Collectors.maxBy(Comparator.comparingInt(City::population)))), populations(largest.snapshot()));
+            assertEquals(populations(recompute(cities, Collectors.minBy(Comparator.comparingInt(City::population)))), populations(smallest.snapshot()));
+            assertEquals(recompute(cities, Collectors.teeing(
+                    Collectors.summingInt(City::population),
+                    Collectors.filtering(city -> city.name().length() > 6, Collectors.counting()),
+                    Pair::new
+            )), tee.snapshot());
+            assertEquals(cities.size(), averages.size());
+        }
+    }
+
+    @Test
+    public void snapshotsDoNotChangeAfterwards() {
+        var counts = GroupingView.groupingBy(City::area, IncrementalCollectors.counting());
+        var hanoi = new City("Ha Noi", Area.NORTH, 8_000_000);
+        var hue = new City("Hue", Area.MIDDLE, 650_000);
+        counts.insert(hanoi);
+        counts.insert(hue);
+        var first = counts.snapshot();
+        assertSame(first, counts.snapshot());
+
+        counts.delete(hue);
+        counts.update(hanoi, new City("Ha Noi", Area.SOUTH, 8_000_000));
+        assertEquals(Map.of(Area.NORTH, 1L, Area.MIDDLE, 1L), first);
+        assertEquals(Map.of(Area.SOUTH, 1L), counts.snapshot());
+        assertThrows(UnsupportedOperationException.class, () -> counts.snapshot().put(Area.NORTH, 2L));
+        assertThrows(IllegalStateException.class, () -> counts.delete(hue));
+    }
+
+    @Test
+    public void removedMinimumIsReplacedByTheNextOne() {
+        var min = IncrementalCollectors.<Integer>minBy(Comparator.naturalOrder());
+        var view = GroupingView.groupingBy((Integer i) -> i % 2, min);
+        List.of(5, 3, 3, 7, 9).forEach(view::insert);
+        view.delete(7);
+        view.delete(3);
+        assertEquals(3, view.snapshot().get(1).orElseThrow());
+        view.delete(3);
+        assertEquals(5, view.snapshot().get(1).orElseThrow());
+        view.insert(7);
+        view.delete(5);
+        assertEquals(7, view.snapshot().get(1).orElseThrow());
+    }
+
+    @Test
+    public void heapStaysBoundedWhenUpdatesMissTheTop() {
+        var heap = new IncrementalCollectors.LazyHeap<Integer>(Comparator.reverseOrder());
+        heap.add(1_000_000_000);
+        heap.add(0);
+        for (int i = 1; i <= 1_000_000; i++) {
+            // an update of the element that never is the maximum
+            heap.add(i);
+            heap.remove(i - 1);
+            assertTrue(heap.size() <= 4, "heap holds " + heap.size() + " elements after " + i + " updates");
+        }
+        assertEquals(1_000_000_000, heap.peek());
+        heap.remove(1_000_000_000);
+        assertEquals(1_000_000, heap.peek());
+
+        var max = IncrementalCollectors.<Integer>maxBy(Comparator.naturalOrder());
+        var view = GroupingView.groupingBy((Integer i) -> "all", max);
+        view.insert(1_000_000_000);
+        view.insert(0);
+        for (int i = 1; i < 100_000; i++) {
+            view.update(i - 1, i);
+        }
+        assertEquals(1_000_000_000, view.snapshot().get("all").orElseThrow());
+        view.delete(1_000_000_000);
+        assertEquals(99_999, view.snapshot().get("all").orElseThrow());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkRefreshAgainstRecomputing() {
+        var cities = new ArrayList<>(CityDataset.generate(2_000_000, 9));
+        var view = GroupingView.groupingBy(City::area, IncrementalCollectors.summarizingInt(City::population));
+        view.insertAll(cities);
+        var random = new Random(3);
+
+        long incremental = 0;
+        long recomputed = 0;
+        for (int round = 0; round < 5; round++) {
+            var changes = new ArrayList<GroupingView.Change<City>>();
+            for (int i = 0; i < 300; i++) {
+                var index = random.nextInt(cities.size());
+                var before = cities.get(index);
+                var after = new City(before.name(), before.area(), random.nextInt(20_000_000));
+                cities.set(index, after);
+                changes.add(GroupingView.Change.update(before, after));
+            }
+
+            var start = System.nanoTime();
+            view.apply(changes);
+            var snapshot = view.snapshot();
+            incremental += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            var expected = cities.stream().collect(Collectors.groupingBy(City::area, Collectors.summarizingInt(City::population)));
+            recomputed += System.nanoTime() - start;
+            assertEquals(printed(expected), printed(snapshot));
+        }
+        System.out.printf("300 changes over 2M cities: incremental refresh %.3f ms, recomputing %.1f ms%n",
+                incremental / 5 / 1e6, recomputed / 5 / 1e6);
+    }
+
+    private static <R> Map<Area, R> recompute(List<City> cities, Collector<City, ?, R> downstream) {
+        return cities.stream().collect(Collectors.groupingBy(City::area, downstream));
+    }
+
+    private static String printed(Map<Area, ?> results) {
+        return new TreeMap<>(results).toString();
+    }
+
+    private static Map<Area, Integer> populations(Map<Area, Optional<City>> cities) {
+        return cities.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().map(City::population).orElse(-1)));
+    }
+}
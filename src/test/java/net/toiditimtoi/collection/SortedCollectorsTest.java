@@ -0,0 +1,126 @@
+package net.toiditimtoi.collection;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SortedCollectorsTest {
+
+    private final List<String> provinces = List.of("Nghe An", "Ha Noi", "Ninh Binh", "Thanh Hoa", "Nam Dinh", "Ha Noi");
+
+    record City(String name, int population) {}
+
+    @Test
+    public void collectingIntoSortedSet() {
+        // the same query as CollectingResultTest.collectElementsIntoAnotherCollection
+        var skipListSet = provinces.stream()
+                .filter(s -> s.length() > 5)
+                .collect(Collectors.toCollection(ConcurrentSkipListSet::new));
+        var sortedSet = provinces.parallelStream()
+                .filter(s -> s.length() > 5)
+                .collect(SortedCollectors.toSortedSet());
+
+        assertIterableEquals(skipListSet, sortedSet);
+        assertTrue(sortedSet.contains("Ha Noi"));
+        assertFalse(sortedSet.contains("Hue"));
+        assertEquals("Ha Noi", sortedSet.first());
+        assertEquals("Thanh Hoa", sortedSet.last());
+    }
+
+    @Test
+    public void streamsOfACustomOrderCanBeSortedNaturally() {
+        var descending = SortedArraySet.copyOf(List.of(3, 1, 9, 5), Comparator.<Integer>reverseOrder());
+        assertEquals(List.of(9, 5, 3, 1), descending.stream().toList());
+        assertEquals(List.of(1, 3, 5, 9), descending.stream().sorted().toList());
+        assertEquals(List.of(1, 3, 5, 9), descending.parallelStream().sorted().toList());
+
+        var natural = SortedArraySet.copyOf(List.of(3, 1, 9, 5), null);
+        assertTrue(natural.spliterator().hasCharacteristics(Spliterator.SORTED));
+        assertNull(natural.spliterator().getComparator());
+        assertEquals(List.of(1, 3, 5, 9), natural.stream().sorted().toList());
+    }
+
+    @Test
+    public void rangeViews() {
+        var numbers = IntStream.range(0, 1000).map(i -> i * 2).boxed().parallel()
+                .collect(SortedCollectors.toSortedSet());
+        var treeSet = new TreeSet<>(numbers);
+
+        assertIterableEquals(treeSet.subSet(100, 201), numbers.subSet(100, 201));
+        assertIterableEquals(treeSet.headSet(7), numbers.headSet(7));
+        assertIterableEquals(treeSet.tailSet(1991), numbers.tailSet(1991));
+        assertEquals(treeSet.ceiling(51), numbers.ceiling(51));
+        assertEquals(treeSet.floor(51), numbers.floor(51));
+        assertNull(numbers.floor(-1));
+        assertNull(numbers.ceiling(2000));
+        assertEquals(25, numbers.subSet(100, 200).indexOf(150));
+        assertThrows(UnsupportedOperationException.class, () -> numbers.add(3));
+    }
+
+    @Test
+    public void sortedListKeepsDuplicatesInEncounterOrder() {
+        var cities = new ArrayList<City>();
+        for (int i = 0; i < 10_000; i++) {
+            cities.add(new City("City " + i, i % 100));
+        }
+        var byPopulation = Comparator.comparingInt(City::population);
+        var expected = cities.stream().sorted(byPopulation).toList();
+        var actual = cities.parallelStream().collect(SortedCollectors.toSortedList(byPopulation));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void combiningMergesTheRunsRightAway() {
+        var left = new SortedCollectors.Runs<Integer>(null, true);
+        List.of(5, 1, 3, 1).forEach(left::add);
+        var right = new SortedCollectors.Runs<Integer>(null, true);
+        List.of(3, 2, 6).forEach(right::add);
+        var combined = left.combine(right);
+        assertEquals(5, combined.length());
+        assertArrayEquals(new Object[]{1, 2, 3, 5, 6}, Arrays.copyOf(combined.sorted(), combined.length()));
+
+        var empty = new SortedCollectors.Runs<Integer>(null, true);
+        assertSame(combined, combined.combine(empty));
+        assertEquals(5, combined.length());
+    }
+
+    @Test
+    public void parallelResultMatchesTreeSet() {
+        var random = new Random(42);
+        var values = random.ints(200_000, 0, 50_000).boxed().toList();
+        var expected = new TreeSet<>(values);
+        var actual = values.parallelStream().collect(SortedCollectors.toSortedSet(Comparator.reverseOrder()));
+        assertIterableEquals(expected.descendingSet(), actual);
+        assertEquals(Comparator.reverseOrder(), actual.comparator());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void sortedSetBenchmark() {
+        var values = new Random(1).ints(1_000_000, 0, 500_000).boxed().toList();
+        for (int round = 0; round < 3; round++) {
+            var start = System.nanoTime();
+            var skipList = values.parallelStream().collect(Collectors.toCollection(ConcurrentSkipListSet::new));
+            var skipListMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            var sortedArray = values.parallelStream().collect(SortedCollectors.toSortedSet());
+            var sortedArrayMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(skipList.size(), sortedArray.size());
+            System.out.println("Round " + round + ": ConcurrentSkipListSet " + skipListMillis + " ms, SortedArraySet " + sortedArrayMillis + " ms");
+        }
+    }
+}
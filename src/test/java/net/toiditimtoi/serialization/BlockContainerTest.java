@@ -0,0 +1,234 @@
+package net.toiditimtoi.serialization;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockContainerTest {
+
+    record Message(String city, String area, long population) implements Serializable {}
+
+    record Tiny(byte value) implements Serializable {}
+
+    private final DeserializationFrontEnd frontEnd = new DeserializationFrontEnd(SerialAllowlist.builder()
+            .allowPackage("net.toiditimtoi")
+            .allowClass(String.class)
+            .build());
+
+    private static List<Message> messages(int count) {
+        var areas = List.of("NORTH", "MIDDLE", "SOUTH");
+        var messages = new ArrayList<Message>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(new Message("City " + i % 1_000, areas.get(i % 3), i * 1_000L));
+        }
+        return messages;
+    }
+
+    private static void write(Path path, List<?> records, int blockBytes) throws IOException {
+        try (var writer = new BlockContainerWriter(Files.newOutputStream(path), blockBytes, Deflater.BEST_SPEED)) {
+            for (var record : records) {
+                writer.write(record);
+            }
+        }
+    }
+
+    @Test
+    public void recordsComeBackInOrder() throws Exception {
+        var container = Files.createTempFile("messages", ".jcb");
+        try {
+            var messages = messages(10_000);
+            write(container, messages, 16 * 1024);
+            try (var reader = BlockContainerReader.open(container, frontEnd)) {
+                assertEquals(10_000, reader.records());
+                assertTrue(reader.blocks().size() > 10, "blocks: " + reader.blocks().size());
+                assertEquals(messages, reader.stream(Message.class).toList());
+                assertEquals(messages, reader.stream(Message.class).parallel().toList());
+                assertEquals(messages.stream().mapToLong(Message::population).sum(),
+                        reader.stream(Message.class).parallel().mapToLong(Message::population).sum());
+            }
+        } finally {
+            Files.delete(container);
+        }
+    }
+
+    @Test
+    public void readerSeeksToTheBlockOfARecord() throws Exception {
+        var container = Files.createTempFile("messages", ".jcb");
+        try {
+            var messages = messages(10_000);
+            write(container, messages, 16 * 1024);
+            try (var reader = BlockContainerReader.open(container, frontEnd)) {
+                var block = reader.blockOf(7_777);
+                var first = reader.blocks().get(block).firstRecord();
+                var records = reader.readBlock(block, Message.class);
+                assertEquals(messages.get(7_777), records.get((int) (7_777 - first)));
+                assertEquals(messages.subList((int) first, messages.size()), reader.stream(Message.class, block).toList());
+                assertEquals(reader.blocks().size() - 1, reader.blockOf(9_999));
+                assertThrows(IndexOutOfBoundsException.class, () -> reader.blockOf(10_000));
+            }
+        } finally {
+            Files.delete(container);
+        }
+    }
+
+    @Test
+    public void blocksOfManyTinyRecords() throws Exception {
+        var container = Files.createTempFile("tiny", ".jcb");
+        try {
+            var tiny = new ArrayList<Tiny>();
+            for (int i = 0; i < 100_000; i++) {
+                tiny.add(new Tiny((byte) i));
+            }
+            write(container, tiny, 256 * 1024);
+            try (var reader = BlockContainerReader.open(container, frontEnd)) {
+                assertTrue(reader.blocks().get(0).records() > 10_000, "records per block: " + reader.blocks().get(0).records());
+                assertEquals(tiny, reader.stream(Tiny.class).toList());
+            }
+        } finally {
+            Files.delete(container);
+        }
+    }
+
+    @Test
+    public void emptyContainer() throws Exception {
+        var container = Files.createTempFile("empty", ".jcb");
+        try {
+            write(container, List.of(), 1024);
+            try (var reader = BlockContainerReader.open(container, frontEnd)) {
+                assertEquals(0, reader.records());
+                assertEquals(List.of(), reader.stream(Message.class).toList());
+            }
+        } finally {
+            Files.delete(container);
+        }
+    }
+
+    @Test
+    public void corruptionIsDetected() throws Exception {
+        var container = Files.createTempFile("messages", ".jcb");
+        try {
+            write(container, messages(1_000), 4 * 1024);
+            var bytes = Files.readAllBytes(container);
+            bytes[bytes.length / 3] ^= 0x20;
+            Files.write(container, bytes);
+            try (var reader = BlockContainerReader.open(container, frontEnd)) {
+                var failure = assertThrows(UncheckedIOException.class, () -> reader.stream(Message.class).toList());
+                assertInstanceOf(StreamCorruptedException.class, failure.getCause());
+            }
+
+            Files.write(container, Arrays.copyOf(bytes, bytes.length - 5));
+            assertThrows(StreamCorruptedException.class, () -> BlockContainerReader.open(container, frontEnd));
+            Files.writeString(container, "City,Area,Population\n");
+            assertThrows(StreamCorruptedException.class, () -> BlockContainerReader.open(container, frontEnd));
+        } finally {
+            Files.delete(container);
+        }
+    }
+
+    @Test
+    public void forgedIndexIsRejectedBeforeAllocating() throws Exception {
+        var container = Files.createTempFile("messages", ".jcb");
+        try {
+            write(container, messages(1_000), 4 * 1024);
+            var original = Files.readAllBytes(container);
+            var trailer = ByteBuffer.wrap(original, original.length - BlockContainerWriter.TRAILER_BYTES, BlockContainerWriter.TRAILER_BYTES);
+            var blockCount = trailer.getInt();
+            var firstEntry = (int) trailer.getLong();
+            assertTrue(blockCount > 1);
+
+            // compressed length, uncompressed length and record count of the first block
+            for (var field : new int[]{8, 12, 16}) {
+                for (var forged : new int[]{-1, 0, Integer.MAX_VALUE}) {
+                    var bytes = original.clone();
+                    ByteBuffer.wrap(bytes).putInt(firstEntry + field, forged);
+                    Files.write(container, bytes);
+                    assertThrows(StreamCorruptedException.class, () -> BlockContainerReader.open(container, frontEnd),
+                            "field " + field + " forged to " + forged);
+                }
+            }
+            var bytes = original.clone();
+            ByteBuffer.wrap(bytes).putLong(original.length - BlockContainerWriter.TRAILER_BYTES + Integer.BYTES, -1_000_000L);
+            Files.write(container, bytes);
+            assertThrows(StreamCorruptedException.class, () -> BlockContainerReader.open(container, frontEnd));
+        } finally {
+            Files.delete(container);
+        }
+    }
+
+    @Test
+    public void allowlistAppliesToEveryBlock() throws Exception {
+        var container = Files.createTempFile("messages", ".jcb");
+        try {
+            write(container, messages(100), 1024);
+            var stringsOnly = new DeserializationFrontEnd(SerialAllowlist.builder().allowClass(String.class).build());
+            try (var reader = BlockContainerReader.open(container, stringsOnly)) {
+                var failure = assertThrows(UncheckedIOException.class, () -> reader.stream(Message.class).toList());
+                assertInstanceOf(InvalidClassException.class, failure.getCause());
+            }
+        } finally {
+            Files.delete(container);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkAgainstUncompressedFile() throws Exception {
+        var messages = messages(300_000);
+        var plain = Files.createTempFile("messages", ".ser");
+        var container = Files.createTempFile("messages", ".jcb");
+        try {
+            try (var oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(plain)))) {
+                for (var message : messages) {
+                    oos.writeObject(message);
+                }
+            }
+            write(container, messages, BlockContainerWriter.DEFAULT_BLOCK_BYTES);
+            System.out.printf("%,d records: uncompressed %,d bytes, block container %,d bytes%n",
+                    messages.size(), Files.size(plain), Files.size(container));
+            assertTrue(Files.size(container) < Files.size(plain) / 2);
+
+            for (int round = 0; round < 3; round++) {
+                var start = System.nanoTime();
+                long[] plainTotal = {0};
+                try (var in = Files.newInputStream(plain)) {
+                    frontEnd.readAll(in, Message.class, message -> plainTotal[0] += message.population());
+                }
+                var plainTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                long sequentialTotal;
+                try (var reader = BlockContainerReader.open(container, frontEnd)) {
+                    sequentialTotal = reader.stream(Message.class).mapToLong(Message::population).sum();
+                }
+                var sequentialTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                long parallelTotal;
+                try (var reader = BlockContainerReader.open(container, frontEnd)) {
+                    parallelTotal = reader.stream(Message.class).parallel().mapToLong(Message::population).sum();
+                }
+                var parallelTime = System.nanoTime() - start;
+
+                var expected = messages.stream().mapToLong(Message::population).sum();
+                assertEquals(expected, plainTotal[0]);
+                assertEquals(expected, sequentialTotal);
+                assertEquals(expected, parallelTotal);
+                System.out.printf("uncompressed %d ms, container sequential %d ms, container parallel %d ms%n",
+                        plainTime / 1_000_000, sequentialTime / 1_000_000, parallelTime / 1_000_000);
+            }
+        } finally {
+            Files.delete(plain);
+            Files.delete(container);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package net.toiditimtoi.serialization;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeserializationFrontEndTest {
+
+    record Message(String city, long population) implements Serializable {}
+
+    static class Node implements Serializable {
+        Node next;
+    }
+
+    private final SerialAllowlist allowlist = SerialAllowlist.builder()
+            .allowPackage("net.toiditimtoi")
+            .allowClass(String.class)
+            .maxDepth(10)
+            .maxArrayLength(1_000)
+            .build();
+
+    private final DeserializationFrontEnd frontEnd = new DeserializationFrontEnd(allowlist);
+
+    private byte[] serialize(Object... objects) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var oos = new ObjectOutputStream(bytes)) {
+            for (var object : objects) {
+                oos.writeObject(object);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void readingManyMessagesFromOneStream() throws Exception {
+        var messages = new Message[1_000];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = new Message("City " + i, i * 1_000L);
+        }
+        List<Message> getBack = new ArrayList<>();
+        var count = frontEnd.readAll(new ByteArrayInputStream(serialize((Object[]) messages)), Message.class, getBack::add);
+
+        assertEquals(1_000, count);
+        assertEquals(messages[999], getBack.get(999));
+    }
+
+    @Test
+    public void limitsApplyToEachMessageNotToTheWholeStream() throws Exception {
+        var defaults = new DeserializationFrontEnd(SerialAllowlist.builder()
+                .allowPackage("net.toiditimtoi")
+                .allowClass(String.class)
+                .build());
+        var messages = new Message[100_000];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = new Message("City " + i, i * 1_000L);
+        }
+        var count = defaults.readAll(new ByteArrayInputStream(serialize((Object[]) messages)), Message.class, message -> {});
+        assertEquals(100_000, count);
+
+        var few = new DeserializationFrontEnd(SerialAllowlist.builder()
+                .allowPackage("net.toiditimtoi")
+                .allowClass(String.class)
+                .maxReferences(100)
+                .build());
+        assertEquals(100_000, few.readAll(new ByteArrayInputStream(serialize((Object[]) messages)), Message.class, message -> {}));
+        var oneLargeMessage = serialize((Object) Arrays.copyOf(messages, 200));
+        assertThrows(InvalidClassException.class, () -> few.readObject(new ByteArrayInputStream(oneLargeMessage), Message[].class));
+    }
+
+    @Test
+    public void classesAreResolvedOnceForAllStreams() throws Exception {
+        var payload = serialize(new Message("Ha Noi", 7_000_000));
+        frontEnd.readObject(new ByteArrayInputStream(payload), Message.class);
+        var cachedAfterFirstStream = frontEnd.cache().size();
+        frontEnd.readObject(new ByteArrayInputStream(payload), Message.class);
+        assertEquals(cachedAfterFirstStream, frontEnd.cache().size());
+    }
+
+    @Test
+    public void classOutsideTheAllowlistIsRejected() throws Exception {
+        var map = new HashMap<String, String>();
+        map.put("Ha Noi", "NORTH");
+        var payload = serialize(map);
+        assertThrows(InvalidClassException.class, () -> frontEnd.readObject(new ByteArrayInputStream(payload), Object.class));
+    }
+
+    @Test
+    public void tooDeepGraphIsRejected() throws Exception {
+        var head = new Node();
+        var current = head;
+        for (int i = 0; i < 50; i++) {
+            current.next = new Node();
+            current = current.next;
+        }
+        var payload = serialize(head);
+        assertThrows(InvalidClassException.class, () -> frontEnd.readObject(new ByteArrayInputStream(payload), Node.class));
+    }
+
+    @Test
+    public void tooLargeArrayIsRejected() throws Exception {
+        var payload = serialize((Object) new long[10_000]);
+        assertThrows(InvalidClassException.class, () -> frontEnd.readObject(new ByteArrayInputStream(payload), long[].class));
+    }
+
+    @Test
+    public void unexpectedTypeIsRejected() throws Exception {
+        var payload = serialize("Ha Noi");
+        assertThrows(InvalidClassException.class, () -> frontEnd.readObject(new ByteArrayInputStream(payload), Message.class));
+    }
+
+    /**
+     * Compares the cost of opening one stream per message:
+     * a plain ObjectInputStream with a pattern filter created for each stream, against the shared front end.
+     */
+    @Test
+    @Tag("benchmark")
+    public void perStreamSetupBenchmark() throws Exception {
+        var payload = serialize(new Message("Ho Chi Minh", 15_000_000));
+        var streams = 50_000;
+
+        for (int round = 0; round < 3; round++) {
+            var start = System.nanoTime();
+            for (int i = 0; i < streams; i++) {
+                try (var ois = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+                    ois.setObjectInputFilter(ObjectInputFilter.Config.createFilter("maxdepth=10;net.toiditimtoi.**;java.lang.String;!*"));
+                    ois.readObject();
+                }
+            }
+            var plainNanos = (System.nanoTime() - start) / streams;
+
+            start = System.nanoTime();
+            for (int i = 0; i < streams; i++) {
+                frontEnd.readObject(new ByteArrayInputStream(payload), Message.class);
+            }
+            var frontEndNanos = (System.nanoTime() - start) / streams;
+            System.out.println("Round " + round + ": plain stream " + plainNanos + " ns/stream, front end " + frontEndNanos + " ns/stream");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package net.toiditimtoi.stream;
+
+import net.toiditimtoi.testing.AllocationBudget;
+import net.toiditimtoi.testing.AllocationMeter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AllocationRegressionTest {
+
+    private static final int SIZE = 1_000_000;
+    // code points above 127 are not in the Integer cache, so boxing them really allocates
+    private static final String TEXT = "Xin Chào Việt Nam ".repeat(SIZE / 18);
+
+    @Test
+    @AllocationBudget(elements = SIZE, bytesPerElement = 0.1)
+    public void primitivePipelineDoesNotAllocatePerElement() {
+        var sum = IntStream.range(0, SIZE)
+                .map(i -> i * 3)
+                .filter(i -> i % 2 == 0)
+                .asLongStream()
+                .sum();
+        assertEquals(evenMultiplesOfThree(SIZE), sum);
+    }
+
+    @Test
+    @AllocationBudget(elements = SIZE, bytesPerElement = 4.5)
+    public void sizedToArrayAllocatesOnlyTheArray() {
+        var squares = IntStream.range(0, SIZE).map(i -> i * i).toArray();
+        assertEquals(SIZE, squares.length);
+    }
+
+    @Test
+    @AllocationBudget(elements = SIZE, bytesPerElement = 0.1)
+    public void sequencesRangeDoesNotBox() {
+        assertEquals((long) SIZE * (SIZE - 1) / 2, Sequences.range(0L, SIZE, 1).sum());
+    }
+
+    @Test
+    public void boxedCodePointsAllocateMoreThanPrimitiveOnes() {
+        var length = TEXT.codePointCount(0, TEXT.length());
+        var words = TEXT.split(" ");
+        var primitive = AllocationMeter.measure(() -> assertTrue(TEXT.codePoints().sum() > 0));
+        var boxed = AllocationMeter.measure(() -> assertTrue(Arrays.stream(words)
+                .flatMap(s -> s.codePoints().boxed())
+                .mapToInt(Integer::intValue)
+                .sum() > 0));
+        System.out.printf("codePoints().sum(): %.2f bytes/code point, flatMap(codePoints().boxed()): %.2f bytes/code point%n",
+                (double) primitive / length, (double) boxed / length);
+        if (AllocationMeter.isSupported()) {
+            assertTrue(primitive < length / 10, "primitive allocated " + primitive);
+            // at least an Integer for each of the non-ASCII code points
+            assertTrue(boxed > length, "boxed allocated " + boxed);
+        }
+    }
+
+    private static long evenMultiplesOfThree(int size) {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            if (i * 3 % 2 == 0) {
+                sum += i * 3;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,108 @@
+package net.toiditimtoi.stream;
+
+import net.toiditimtoi.collection.RowBitmap;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BitmapIndexTest {
+
+    enum Area {
+        NORTH, SOUTH, MIDDLE, OTHER
+    }
+
+    record City(String name, Area area, int population) {}
+
+    City hanoi = new City("Ha Noi", Area.NORTH, 7_000_000);
+    City bacNinh = new City("Bac Ninh", Area.NORTH, 1_000_000);
+    City hcmc = new City("Ho Chi Minh", Area.SOUTH, 15_000_000);
+    City canTho = new City("Can Tho", Area.SOUTH, 3_000_000);
+    City daNang = new City("Da Nang", Area.MIDDLE, 2_500_000);
+    City vinh = new City("Vinh", Area.MIDDLE, 2_000_000);
+    City[] allCities = new City[]{hanoi, bacNinh, hcmc, canTho, vinh, daNang};
+
+    @Test
+    public void partitioningAndCounting() {
+        // the same query as CollectingResultTest.partitioningAndCounting, without materializing the partitions
+        var index = BitmapIndex.of(allCities);
+        var theNorthAndOthers = index.partitioningBy(city -> city.area() == Area.NORTH);
+        assertEquals(2, index.count(theNorthAndOthers.get(true)));
+        assertEquals(4, index.count(theNorthAndOthers.get(false)));
+        assertEquals(List.of(hanoi, bacNinh), index.collect(theNorthAndOthers.get(true), Collectors.toList()));
+    }
+
+    @Test
+    public void combiningPredicates() {
+        var index = BitmapIndex.of(allCities);
+        var north = index.where(city -> city.area() == Area.NORTH);
+        var big = index.where(city -> city.population() > 2_000_000);
+
+        assertEquals(List.of(hcmc, canTho, daNang), index.stream(big.andNot(north)).toList());
+        assertEquals(List.of(hanoi), index.stream(big.and(north)).toList());
+        var northOrBig = index.summarizingInt(north.or(big), City::population);
+        assertEquals(5, northOrBig.getCount());
+        assertEquals(1_000_000, northOrBig.getMin());
+        assertEquals(7_000_000 + 1_000_000 + 15_000_000 + 3_000_000 + 2_500_000, northOrBig.getSum());
+        assertEquals(4_000_000.0, index.averageInt(north, City::population).orElseThrow());
+        assertTrue(index.averageInt(RowBitmap.empty(), City::population).isEmpty());
+    }
+
+    @Test
+    public void bitmapAlgebraMatchesSets() {
+        var random = new Random(3);
+        // one sparse and one dense operand so that every container combination is exercised
+        var sparse = random.ints(20_000, 0, 1_000_000).toArray();
+        var dense = IntStream.range(0, 1_000_000).filter(i -> random.nextInt(3) == 0).toArray();
+        var a = RowBitmap.of(sparse);
+        var b = RowBitmap.of(dense);
+        var setA = IntStream.of(sparse).boxed().collect(Collectors.toSet());
+        var setB = IntStream.of(dense).boxed().collect(Collectors.toSet());
+
+        assertEquals(setA.stream().filter(setB::contains).sorted().toList(), a.and(b).rows().boxed().toList());
+        assertEquals(IntStream.concat(IntStream.of(sparse), IntStream.of(dense)).distinct().sorted().boxed().toList(),
+                a.or(b).rows().boxed().toList());
+        assertEquals(setA.stream().filter(i -> !setB.contains(i)).sorted().toList(), a.andNot(b).rows().boxed().toList());
+        assertEquals(setB.stream().filter(i -> !setA.contains(i)).count(), b.andNot(a).cardinality());
+        assertTrue(a.sizeInBytes() < 4L * sparse.length);
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void dashboardBenchmark() {
+        var random = new Random(11);
+        var areas = Area.values();
+        var cities = new ArrayList<City>();
+        for (int i = 0; i < 2_000_000; i++) {
+            cities.add(new City("City " + i, areas[random.nextInt(areas.length)], random.nextInt(10_000_000)));
+        }
+        var index = BitmapIndex.of(cities);
+        var north = index.where(city -> city.area() == Area.NORTH);
+        var big = index.where(city -> city.population() > 5_000_000);
+        var south = index.where(city -> city.area() == Area.SOUTH);
+
+        for (int round = 0; round < 3; round++) {
+            var start = System.nanoTime();
+            var northBig = cities.parallelStream()
+                    .collect(Collectors.partitioningBy(city -> city.area() == Area.NORTH && city.population() > 5_000_000, Collectors.toList()));
+            var southOrBig = cities.parallelStream()
+                    .collect(Collectors.partitioningBy(city -> city.area() == Area.SOUTH || city.population() > 5_000_000, Collectors.counting()));
+            var collectionMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            var northBigBitmap = north.and(big);
+            var southOrBigCount = index.count(south.or(big));
+            var bitmapMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(northBig.get(true).size(), northBigBitmap.cardinality());
+            assertEquals(southOrBig.get(true), southOrBigCount);
+            System.out.println("Round " + round + ": partitioningBy " + collectionMillis + " ms, bitmaps " + bitmapMillis + " ms");
+        }
+    }
+}
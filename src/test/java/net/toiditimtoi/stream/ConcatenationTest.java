@@ -0,0 +1,124 @@
+package net.toiditimtoi.stream;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcatenationTest {
+
+    private static List<List<Integer>> partitions(int count, int size) {
+        var partitions = new ArrayList<List<Integer>>();
+        for (int p = 0; p < count; p++) {
+            var start = p * size;
+            partitions.add(IntStream.range(start, start + size).boxed().toList());
+        }
+        return partitions;
+    }
+
+    @Test
+    public void concatenatesInOrder() {
+        assertEquals(List.of("A", "B", "C", "D", "E", "F"),
+                Concatenation.of(Stream.of("A", "B"), Stream.empty(), Stream.of("C"), Stream.of("D", "E", "F")).toList());
+        assertEquals(List.of(), Concatenation.of(List.<Stream<String>>of()).toList());
+
+        var partitions = partitions(1_000, 37);
+        var expected = IntStream.range(0, 37_000).boxed().toList();
+        assertEquals(expected, Concatenation.of(partitions.stream().map(List::stream).toList()).toList());
+        assertEquals(expected, Concatenation.of(partitions.stream().map(List::parallelStream).toList()).toList());
+    }
+
+    @Test
+    public void sizeIsExactWhenEveryPartIsSized() {
+        var sized = Concatenation.ofSpliterators(List.of(List.of(1, 2).spliterator(), List.of(3).spliterator()));
+        assertEquals(3, sized.getExactSizeIfKnown());
+        assertTrue(sized.hasCharacteristics(Spliterator.SUBSIZED | Spliterator.ORDERED));
+
+        var unsized = Concatenation.of(Stream.of(1, 2), Stream.iterate(3, i -> i < 5, i -> i + 1));
+        assertEquals(-1, unsized.spliterator().getExactSizeIfKnown());
+        assertEquals(4, Concatenation.of(Stream.of(1, 2), Stream.iterate(3, i -> i < 5, i -> i + 1)).count());
+    }
+
+    @Test
+    public void splitsAlongPartitionBoundaries() {
+        // one large partition and many small ones
+        var parts = new ArrayList<Spliterator<Integer>>();
+        parts.add(IntStream.range(0, 1_000).boxed().toList().spliterator());
+        for (int p = 0; p < 100; p++) {
+            parts.add(IntStream.range(1_000 + p * 10, 1_010 + p * 10).boxed().toList().spliterator());
+        }
+        var suffix = Concatenation.ofSpliterators(parts);
+        var prefix = suffix.trySplit();
+        assertEquals(1_000, prefix.getExactSizeIfKnown());
+        assertEquals(1_000, suffix.getExactSizeIfKnown());
+        // a single part left splits itself
+        var half = prefix.trySplit();
+        assertEquals(500, half.getExactSizeIfKnown());
+
+        var seen = new ArrayList<Integer>();
+        half.forEachRemaining(seen::add);
+        prefix.forEachRemaining(seen::add);
+        suffix.forEachRemaining(seen::add);
+        assertEquals(IntStream.range(0, 2_000).boxed().toList(), seen);
+    }
+
+    @Test
+    public void manyPartitionsDoNotOverflowTheStack() {
+        var streams = new ArrayList<Stream<Integer>>();
+        for (int i = 0; i < 100_000; i++) {
+            streams.add(Stream.of(i));
+        }
+        assertEquals((long) 100_000 * 99_999 / 2, Concatenation.of(streams).mapToLong(Integer::longValue).sum());
+    }
+
+    @Test
+    public void closingClosesEveryStream() {
+        var closed = new AtomicInteger();
+        var failing = Stream.of(1).onClose(() -> {
+            throw new IllegalStateException("first");
+        });
+        var concatenated = Concatenation.of(failing, Stream.of(2).onClose(closed::incrementAndGet), Stream.of(3).onClose(() -> {
+            throw new IllegalStateException("second");
+        }));
+        var error = assertThrows(IllegalStateException.class, concatenated::close);
+        assertEquals("first", error.getMessage());
+        assertEquals("second", error.getSuppressed()[0].getMessage());
+        assertEquals(1, closed.get());
+        assertTrue(Concatenation.of(Stream.of(1), Stream.of(2).parallel()).isParallel());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkAgainstNestedConcatAndFlatMap() {
+        var partitions = partitions(2_000, 5_000);
+        for (int round = 0; round < 3; round++) {
+            var start = System.nanoTime();
+            var nested = partitions.stream().map(List::stream).reduce(Stream.empty(), Stream::concat)
+                    .parallel().mapToLong(Integer::longValue).sum();
+            var nestedTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            var flatMapped = partitions.stream().map(List::stream).parallel().flatMap(Function.identity())
+                    .mapToLong(Integer::longValue).sum();
+            var flatMapTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            var flat = Concatenation.of(partitions.stream().map(List::stream).toList())
+                    .parallel().mapToLong(Integer::longValue).sum();
+            var flatTime = System.nanoTime() - start;
+
+            assertEquals(nested, flat);
+            assertEquals(flatMapped, flat);
+            System.out.printf("2,000 partitions of 5,000: nested concat %.0f ms, flatMap %.0f ms, Concatenation %.0f ms%n",
+                    nestedTime / 1e6, flatMapTime / 1e6, flatTime / 1e6);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package net.toiditimtoi.stream;
+
+import net.toiditimtoi.collection.IntHashSet;
+import net.toiditimtoi.collection.LongHashSet;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DistinctTest {
+
+    @Test
+    public void sameValuesAsDistinct() {
+        var ids = new int[500_000];
+        new RandomStreams(2).fill(ids, -100_000, 100_000);
+        var expected = IntStream.of(ids).distinct().sorted().toArray();
+        assertArrayEquals(expected, Distinct.of(IntStream.of(ids)).sorted().toArray());
+        assertArrayEquals(expected, Distinct.of(IntStream.of(ids).parallel()).sorted().toArray());
+
+        var longIds = LongStream.of(IntStream.of(ids).asLongStream().toArray()).map(id -> id * 1_000_000_007L).toArray();
+        assertArrayEquals(LongStream.of(longIds).distinct().sorted().toArray(), Distinct.of(LongStream.of(longIds).parallel()).sorted().toArray());
+
+        var names = List.of("A", " ", "B", "A", "C", "A", "D", "A");
+        assertEquals(Set.of("A", " ", "B", "C", "D"), Distinct.of(names.parallelStream()).collect(Collectors.toSet()));
+        assertEquals(5, Distinct.of(names.stream()).count());
+        assertTrue(Distinct.of(IntStream.range(0, 10).parallel()).isParallel());
+        assertEquals(0, Distinct.of(IntStream.empty()).count());
+    }
+
+    @Test
+    public void zeroAndNullAreValuesToo() {
+        assertArrayEquals(new int[]{0}, Distinct.of(IntStream.of(0, 0, 0)).toArray());
+        assertArrayEquals(new long[]{0, 1}, Distinct.of(LongStream.of(0, 1, 0)).sorted().toArray());
+        assertEquals(2, Distinct.of(Arrays.asList(null, "A", null).stream()).count());
+    }
+
+    @Test
+    public void openAddressingSets() {
+        var set = new IntHashSet();
+        var reference = new HashSet<Integer>();
+        var values = new int[200_000];
+        new RandomStreams(7).fill(values, -50_000, 50_000);
+        for (var value : values) {
+            assertEquals(reference.add(value), set.add(value));
+        }
+        assertEquals(reference.size(), set.size());
+        assertTrue(set.contains(0) == reference.contains(0));
+        assertFalse(set.contains(60_000));
+        assertEquals(reference, Arrays.stream(set.toArray()).boxed().collect(Collectors.toSet()));
+
+        var longs = new LongHashSet(4);
+        assertTrue(longs.add(Long.MIN_VALUE));
+        assertTrue(longs.add(0));
+        assertFalse(longs.add(0));
+        LongStream.range(1, 1_000).forEach(longs::add);
+        assertEquals(1_001, longs.size());
+        assertTrue(longs.contains(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void approximateDistinctDropsFewValuesAndNoDuplicates() {
+        var ids = new long[2_000_000];
+        new RandomStreams(5).fill(ids, 0, 1_000_000);
+        var exact = Distinct.of(LongStream.of(ids).parallel()).collect(HashSet<Long>::new, Set::add, Set::addAll);
+        for (var falsePositiveRate : new double[]{0.01, 0.2}) {
+            var approximate = Distinct.approximate(LongStream.of(ids).parallel(), falsePositiveRate).toArray();
+            assertEquals(approximate.length, LongStream.of(approximate).distinct().count(), "no duplicates");
+            assertTrue(LongStream.of(approximate).allMatch(exact::contains), "only values of the source");
+            var lost = (double) (exact.size() - approximate.length) / exact.size();
+            System.out.printf("false positive rate %.2f: kept %,d of %,d values (%.3f%% lost)%n",
+                    falsePositiveRate, approximate.length, exact.size(), lost * 100);
+            assertTrue(lost <= falsePositiveRate, "lost " + lost);
+            if (falsePositiveRate >= 0.2) {
+                assertTrue(lost > 0.001, "a crowded filter drops values, lost " + lost);
+            }
+        }
+        assertEquals(4, Distinct.approximate(IntStream.of(1, 2, 0, 2, 3, 1, 0), 0.001).count());
+    }
+
+    @Test
+    public void closingTheResultClosesTheSource() {
+        var closed = new AtomicInteger();
+        Distinct.of(Stream.of("a", "b", "a").onClose(closed::incrementAndGet)).close();
+        Distinct.of(IntStream.of(1, 1).onClose(closed::incrementAndGet)).close();
+        Distinct.of(LongStream.of(1, 1).onClose(closed::incrementAndGet)).close();
+        Distinct.approximate(IntStream.of(1, 1).onClose(closed::incrementAndGet), 0.01).close();
+        Distinct.approximate(LongStream.of(1, 1).onClose(closed::incrementAndGet), 0.01).close();
+        assertEquals(5, closed.get());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkAgainstStreamDistinct() {
+        var ids = new int[10_000_000];
+        new RandomStreams(1).fill(ids, 0, 5_000_000);
+        for (int round = 0; round < 2; round++) {
+            var start = System.nanoTime();
+            var builtIn = IntStream.of(ids).parallel().distinct().count();
+            var builtInTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            var unordered = IntStream.of(ids).parallel().boxed().unordered().distinct().count();
+            var unorderedTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            var sharded = Distinct.of(IntStream.of(ids).parallel()).count();
+            var shardedTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            var approximate = Distinct.approximate(IntStream.of(ids).parallel(), 0.01).count();
+            var approximateTime = System.nanoTime() - start;
+
+            assertEquals(builtIn, sharded);
+            assertEquals(builtIn, unordered);
+            assertTrue(approximate <= builtIn && approximate >= builtIn * 0.99);
+            System.out.printf("10M ids, %,d distinct: distinct() %.0f ms, unordered().distinct() %.0f ms, Distinct.of %.0f ms, approximate %.0f ms (%,d kept)%n",
+                    builtIn, builtInTime / 1e6, unorderedTime / 1e6, shardedTime / 1e6, approximateTime / 1e6, approximate);
+        }
+    }
+}
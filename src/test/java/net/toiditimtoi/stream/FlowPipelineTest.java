@@ -0,0 +1,278 @@
+package net.toiditimtoi.stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlowPipelineTest {
+
+    record PopulationUpdate(String city, String area, int population) {}
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void operatorsBehaveLikeTheirStreamCounterparts() throws Exception {
+        var publisher = new SubmissionPublisher<Integer>(executor, 16);
+        var result = FlowPipeline.from(publisher)
+                .withExecutor(executor)
+                .withBufferSize(32)
+                .withBatchSize(8)
+                .filter(i -> i % 3 != 0)
+                .map(i -> i * 10)
+                .flatMap(i -> Stream.of(i, i + 1))
+                .collect(Collectors.toList());
+        IntStream.range(0, 10_000).forEach(publisher::submit);
+        publisher.close();
+
+        var expected = IntStream.range(0, 10_000).boxed()
+                .filter(i -> i % 3 != 0)
+                .map(i -> i * 10)
+                .flatMap(i -> Stream.of(i, i + 1))
+                .toList();
+        assertEquals(expected, result.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void groupingAnEndlessFeed() throws Exception {
+        var feed = new EndlessFeed<>(i -> new PopulationUpdate("City " + i, i % 3 == 0 ? "NORTH" : "SOUTH", 1_000));
+        var grouping = FlowPipeline.from(feed)
+                .withExecutor(executor)
+                .groupingBy(PopulationUpdate::area, Collectors.summingLong(PopulationUpdate::population));
+        while (grouping.processed() < 100_000) {
+            Thread.sleep(10);
+        }
+
+        var snapshot = grouping.snapshot();
+        var total = snapshot.values().stream().mapToLong(Long::longValue).sum();
+        System.out.println("snapshot after " + total / 1_000 + " updates: " + snapshot);
+        assertEquals(List.of("NORTH", "SOUTH"), snapshot.keySet().stream().sorted().toList());
+        assertTrue(total >= 100_000L * 1_000);
+        // a snapshot is a copy, it does not follow the feed
+        var copy = Map.copyOf(snapshot);
+        Thread.sleep(50);
+        assertEquals(copy, snapshot);
+        assertTrue(grouping.snapshot().values().stream().mapToLong(Long::longValue).sum() > total);
+
+        grouping.cancel();
+        assertTrue(feed.cancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void snapshotsOfMutableContainersAreCopies() throws Exception {
+        var publisher = new SubmissionPublisher<Integer>(executor, 16);
+        var pipeline = FlowPipeline.from(publisher).withExecutor(executor).withBatchSize(1);
+        var sets = pipeline.groupingBy(i -> i % 2 == 0 ? "even" : "odd", Collectors.toSet(), Set::copyOf);
+        var lists = pipeline.groupingBy(i -> i % 2 == 0 ? "even" : "odd", Collectors.toList());
+        var uncopiable = pipeline.groupingBy(i -> i % 2 == 0 ? "even" : "odd", Collectors.toSet());
+        IntStream.range(0, 10).forEach(publisher::submit);
+        while (sets.processed() < 10 || lists.processed() < 10 || uncopiable.processed() < 10) {
+            Thread.sleep(10);
+        }
+
+        var setSnapshot = sets.snapshot();
+        var listSnapshot = lists.snapshot();
+        assertThrows(IllegalStateException.class, uncopiable::snapshot);
+        IntStream.range(10, 20).forEach(publisher::submit);
+        publisher.close();
+        var finalSets = sets.completion().get(10, TimeUnit.SECONDS);
+        lists.completion().get(10, TimeUnit.SECONDS);
+
+        assertEquals(Set.of(0, 2, 4, 6, 8), setSnapshot.get("even"));
+        assertEquals(List.of(1, 3, 5, 7, 9), listSnapshot.get("odd"));
+        assertEquals(10, finalSets.get("even").size());
+        assertEquals(finalSets, sets.snapshot());
+    }
+
+    @Test
+    public void eachGroupIsASingleContainer() throws Exception {
+        var containers = new AtomicLong();
+        var counting = Collector.<Integer, long[], Long>of(
+                () -> {
+                    containers.incrementAndGet();
+                    return new long[1];
+                },
+                (count, i) -> count[0]++,
+                (left, right) -> {
+                    left[0] += right[0];
+                    return left;
+                },
+                count -> count[0]);
+        var feed = new EndlessFeed<>(i -> (int) i);
+        var grouping = FlowPipeline.from(feed)
+                .withExecutor(executor)
+                .groupingBy(i -> i % 3, counting);
+        while (grouping.processed() < 100_000) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, containers.get());
+
+        var snapshot = grouping.snapshot();
+        assertEquals(6, containers.get(), "a snapshot copies each container once");
+        assertTrue(snapshot.values().stream().mapToLong(Long::longValue).sum() >= 100_000);
+        grouping.cancel();
+        assertTrue(feed.cancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void aFastProducerIsHeldBackByTheBuffer() throws Exception {
+        var feed = new EndlessFeed<>(i -> i);
+        var consumed = new AtomicLong();
+        var maxInFlight = new AtomicLong();
+        var done = FlowPipeline.from(feed)
+                .withExecutor(executor)
+                .withBufferSize(256)
+                .withBatchSize(32)
+                .forEach(i -> {
+                    var inFlight = feed.emitted.get() - consumed.incrementAndGet();
+                    maxInFlight.accumulateAndGet(inFlight, Math::max);
+                    if (i % 1_000 == 0) {
+                        sleep(1);
+                    }
+                });
+        while (consumed.get() < 50_000) {
+            Thread.sleep(10);
+        }
+        done.cancel(false);
+
+        System.out.println("most elements in flight: " + maxInFlight.get());
+        assertTrue(maxInFlight.get() <= 256, "in flight " + maxInFlight.get());
+        assertTrue(feed.cancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failuresCompleteTheResultAndCancelTheSource() throws Exception {
+        var feed = new EndlessFeed<>(i -> i);
+        var done = FlowPipeline.from(feed)
+                .withExecutor(executor)
+                .map(i -> 100 / (1_000 - i))
+                .forEach(i -> {});
+        var error = assertThrows(ExecutionException.class, () -> done.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ArithmeticException.class, error.getCause());
+        assertTrue(feed.cancelled.await(5, TimeUnit.SECONDS));
+
+        var publisher = new SubmissionPublisher<Integer>(executor, 16);
+        var collected = FlowPipeline.from(publisher).withExecutor(executor).collect(Collectors.counting());
+        publisher.submit(1);
+        publisher.closeExceptionally(new IllegalStateException("feed broken"));
+        error = assertThrows(ExecutionException.class, () -> collected.get(5, TimeUnit.SECONDS));
+        assertEquals("feed broken", error.getCause().getMessage());
+    }
+
+    @Test
+    public void invalidSettings() {
+        var pipeline = FlowPipeline.from(new SubmissionPublisher<Integer>()).withBufferSize(64);
+        assertThrows(IllegalArgumentException.class, () -> pipeline.withBufferSize(0));
+        assertThrows(IllegalArgumentException.class, () -> pipeline.withBatchSize(65));
+        assertThrows(IllegalArgumentException.class, () -> pipeline.withBatchSize(0));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkSustainedEventsPerSecond() throws Exception {
+        var events = 2_000_000;
+        for (var batchSize : new int[]{1, 16, 256}) {
+            var publisher = new SubmissionPublisher<PopulationUpdate>(executor, 1024);
+            var start = System.nanoTime();
+            var grouping = FlowPipeline.from(publisher)
+                    .withExecutor(executor)
+                    .withBufferSize(1024)
+                    .withBatchSize(batchSize)
+                    .filter(update -> update.population() > 0)
+                    .groupingBy(PopulationUpdate::area, Collectors.counting());
+            long slowestSnapshot = 0;
+            for (int i = 0; i < events; i++) {
+                // blocks whenever the pipeline falls behind
+                publisher.submit(new PopulationUpdate("City", i % 2 == 0 ? "NORTH" : "SOUTH", i + 1));
+                if (i % 100_000 == 0) {
+                    // the groups hold a counter each, a snapshot costs the same after 100 events or 2M
+                    var snapshotStart = System.nanoTime();
+                    grouping.snapshot();
+                    slowestSnapshot = Math.max(slowestSnapshot, System.nanoTime() - snapshotStart);
+                }
+            }
+            publisher.close();
+            var result = grouping.completion().get(60, TimeUnit.SECONDS);
+            var seconds = (System.nanoTime() - start) / 1e9;
+            assertEquals(events, result.values().stream().mapToLong(Long::longValue).sum());
+            System.out.printf("batch size %3d: %,.0f events/s, slowest snapshot %,d us%n",
+                    batchSize, events / seconds, slowestSnapshot / 1_000);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends element after element on its own thread, exactly as fast as the demand allows.
+     */
+    private static final class EndlessFeed<T> implements Flow.Publisher<T> {
+
+        private final LongFunction<T> generator;
+        private final ExecutorService thread = Executors.newSingleThreadExecutor();
+        final AtomicLong emitted = new AtomicLong();
+        final CountDownLatch cancelled = new CountDownLatch(1);
+
+        EndlessFeed(LongFunction<T> generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super T> subscriber) {
+            var demand = new AtomicLong();
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    if (cancelled.getCount() > 0 && demand.getAndAdd(n) == 0) {
+                        thread.execute(this::emit);
+                    }
+                }
+
+                private void emit() {
+                    var requested = demand.get();
+                    while (requested > 0 && cancelled.getCount() > 0) {
+                        for (long i = 0; i < requested && cancelled.getCount() > 0; i++) {
+                            emitted.incrementAndGet();
+                            subscriber.onNext(generator.apply(emitted.get()));
+                        }
+                        requested = demand.addAndGet(-requested);
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.countDown();
+                    thread.shutdown();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package net.toiditimtoi.stream;
+
+import net.toiditimtoi.testing.AllocationMeter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JoiningCollectorsTest {
+
+    private final List<String> provinces = List.of("Nghe An", "Ha Noi", "Ninh Binh", "Thanh Hoa", "Nam Dinh");
+
+    @Test
+    public void joiningString() {
+        // the same query as CollectingResultTest.joiningString
+        var joinedString = provinces.stream()
+                .filter(s -> s.length() > 7)
+                .collect(JoiningCollectors.joining(" - "));
+        assertEquals("Ninh Binh - Thanh Hoa - Nam Dinh", joinedString);
+
+        assertEquals("[Nghe An, Ha Noi, Ninh Binh, Thanh Hoa, Nam Dinh]",
+                provinces.parallelStream().collect(JoiningCollectors.joining(", ", "[", "]")));
+        assertEquals("[]", provinces.stream().filter(String::isEmpty).collect(JoiningCollectors.joining(", ", "[", "]")));
+    }
+
+    @Test
+    public void parallelJoinKeepsEncounterOrder() {
+        var names = IntStream.range(0, 100_000).mapToObj(i -> "City " + i).toList();
+        assertEquals(names.stream().collect(Collectors.joining(";")),
+                names.parallelStream().collect(JoiningCollectors.joining(";")));
+    }
+
+    @Test
+    public void exactLengthIsKnownBeforeBuildingTheString() {
+        var joined = provinces.parallelStream().collect(JoiningCollectors.toJoinedText(" - ", "<", ">"));
+        var expected = "<" + String.join(" - ", provinces) + ">";
+        assertEquals(expected.length(), joined.exactLength());
+        assertEquals(provinces.size(), joined.pieceCount());
+        assertEquals(expected, joined.toString());
+    }
+
+    @Test
+    public void materializingAllocatesTheTextTwiceAtMost() {
+        var names = IntStream.range(0, 100_000).mapToObj(i -> "City " + i).toList();
+        var joined = names.parallelStream().collect(JoiningCollectors.toJoinedText(", ", "[", "]"));
+        String[] text = new String[1];
+        var allocated = AllocationMeter.measure(() -> text[0] = joined.toString());
+        assertEquals("[" + String.join(", ", names) + "]", text[0]);
+        if (AllocationMeter.isSupported()) {
+            // a Latin-1 builder of exactly the length and the String copied from it
+            assertTrue(allocated < 2 * joined.exactLength() + 16 * 1_024, "allocated " + allocated + " bytes for "
+                    + joined.exactLength() + " chars");
+        }
+    }
+
+    @Test
+    public void streamingToWriterAndChannel() throws Exception {
+        var src = List.of("Xin Chào", "Việt Nam", "🌐");
+        var joined = src.parallelStream().collect(JoiningCollectors.toJoinedText(" | "));
+
+        var writer = new StringWriter();
+        joined.writeTo(writer);
+        assertEquals("Xin Chào | Việt Nam | 🌐", writer.toString());
+
+        var bytes = new ByteArrayOutputStream();
+        joined.writeTo(Channels.newChannel(bytes), StandardCharsets.UTF_8);
+        assertEquals("Xin Chào | Việt Nam | 🌐", bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void surrogatePairSplitAcrossPieces() throws Exception {
+        var joined = Stream.of("a\uD83D", "\uDE00b").collect(JoiningCollectors.toJoinedText(""));
+        assertEquals("a😀b", joined.toString());
+
+        var bytes = new ByteArrayOutputStream();
+        joined.writeTo(Channels.newChannel(bytes), StandardCharsets.UTF_8);
+        assertEquals(6, bytes.size());
+        assertEquals("a😀b", bytes.toString(StandardCharsets.UTF_8));
+
+        var split = Stream.of("x\uD83D", "", "\uDE00").collect(JoiningCollectors.toJoinedText("", "[", "]"));
+        bytes.reset();
+        split.writeTo(Channels.newChannel(bytes), StandardCharsets.UTF_8);
+        assertEquals("[x😀]", bytes.toString(StandardCharsets.UTF_8));
+
+        var dangling = Stream.of("a\uD83D").collect(JoiningCollectors.toJoinedText(""));
+        assertThrows(MalformedInputException.class,
+                () -> dangling.writeTo(Channels.newChannel(new ByteArrayOutputStream()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void joiningBenchmark() {
+        var names = IntStream.range(0, 3_000_000).mapToObj(i -> "City number " + i).toList();
+        for (int round = 0; round < 3; round++) {
+            var start = System.nanoTime();
+            var builtIn = names.parallelStream().collect(Collectors.joining(" - "));
+            var builtInMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            var rope = names.parallelStream().collect(JoiningCollectors.joining(" - "));
+            var ropeMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(builtIn.length(), rope.length());
+            System.out.println("Round " + round + ": Collectors.joining " + builtInMillis + " ms, JoiningCollectors.joining " + ropeMillis + " ms");
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package net.toiditimtoi.stream;
+
+import net.toiditimtoi.testing.AllocationBudget;
+import net.toiditimtoi.testing.AllocationMeter;
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NullablesTest {
+
+    private static final int SIZE = 1_000_000;
+    private static final int TOWNS = 1_024;
+    // every third id has no town
+    private static final Town[] BY_ID = new Town[TOWNS];
+
+    static {
+        for (int id = 0; id < TOWNS; id++) {
+            BY_ID[id] = id % 3 == 0 ? null : new Town("Town " + id, id * 1_000, id % 5 == 0 ? null : "Province " + id % 7);
+        }
+    }
+
+    private static final Predicate<Town> LARGE = town -> town.population() >= 500_000;
+
+    record Town(String name, int population, String province) {
+    }
+
+    private static Town townOf(int id) {
+        return BY_ID[id % TOWNS];
+    }
+
+    private static Optional<Town> findTown(int id) {
+        return Optional.ofNullable(BY_ID[id % TOWNS]);
+    }
+
+    /**
+     * @return a packed {@link NullableInt}
+     */
+    private static long populationOf(int id) {
+        return Nullables.mapToInt(townOf(id), Town::population);
+    }
+
+    private static long areaCodeOf(int id) {
+        return id % 3 == 0 ? NullableLong.EMPTY : NullableLong.of(id * 10_000_000_000L);
+    }
+
+    @Test
+    public void referenceChainsBehaveLikeOptional() {
+        for (int id = 0; id < TOWNS; id++) {
+            var expected = findTown(id)
+                    .filter(LARGE)
+                    .flatMap(town -> Optional.ofNullable(town.province()))
+                    .map(String::toUpperCase)
+                    .orElse("-");
+            var actual = Nullables.orElse(Nullables.map(Nullables.map(Nullables.filter(townOf(id), LARGE),
+                    Town::province), String::toUpperCase), "-");
+            assertEquals(expected, actual, "town " + id);
+        }
+        assertEquals("fallback", Nullables.or(null, () -> "fallback"));
+        assertEquals("present", Nullables.<String>or("present", () -> {
+            throw new AssertionError("supplier called");
+        }));
+        assertThrows(NoSuchElementException.class, () -> Nullables.orElseThrow(null));
+        assertEquals(Optional.empty(), Nullables.toOptional(null));
+        assertEquals("x", Nullables.fromOptional(Optional.of("x")));
+        assertNull(Nullables.fromOptional(Optional.empty()));
+    }
+
+    @Test
+    public void nullableIntCoversTheWholeIntRange() {
+        for (var value : new int[]{0, -1, 1, Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+            var packed = NullableInt.of(value);
+            assertTrue(NullableInt.isPresent(packed));
+            assertEquals(value, NullableInt.get(packed));
+            assertEquals(OptionalInt.of(value), NullableInt.toOptional(packed));
+            assertEquals(packed, NullableInt.fromOptional(OptionalInt.of(value)));
+        }
+        assertTrue(NullableInt.isEmpty(NullableInt.fromOptional(OptionalInt.empty())));
+        assertEquals(OptionalInt.empty(), NullableInt.toOptional(NullableInt.EMPTY));
+        assertThrows(NoSuchElementException.class, () -> NullableInt.get(NullableInt.EMPTY));
+        assertEquals(7, NullableInt.orElse(NullableInt.EMPTY, 7));
+        assertEquals("NullableInt[-3]", NullableInt.toString(NullableInt.of(-3)));
+    }
+
+    @Test
+    public void primitiveChainsBehaveLikeOptionalInt() {
+        for (int id = 0; id < TOWNS; id++) {
+            var expected = findTown(id)
+                    .filter(LARGE)
+                    .map(town -> town.population() / 1_000)
+                    .orElse(-1);
+            var actual = NullableInt.orElse(NullableInt.map(NullableInt.filter(populationOf(id), p -> p >= 500_000),
+                    p -> p / 1_000), -1);
+            assertEquals(expected, actual, "town " + id);
+            assertEquals(id % 3 == 0 ? null : "Town " + id, NullableInt.mapToObj(populationOf(id), p -> "Town " + p / 1_000));
+            var flatMapped = NullableInt.flatMap(populationOf(id), p -> p % 2 == 0 ? NullableInt.of(p / 2) : NullableInt.EMPTY);
+            assertEquals(id % 3 == 0 ? OptionalInt.empty() : OptionalInt.of(id * 500), NullableInt.toOptional(flatMapped));
+        }
+    }
+
+    @Test
+    public void nullableLongReservesOnlyItsSentinel() {
+        assertThrows(IllegalArgumentException.class, () -> NullableLong.of(Long.MIN_VALUE));
+        assertEquals(Long.MAX_VALUE, NullableLong.get(NullableLong.of(Long.MAX_VALUE)));
+        assertThrows(IllegalArgumentException.class, () -> NullableLong.map(NullableLong.of(1), value -> Long.MIN_VALUE));
+        assertEquals(OptionalLong.of(20_000_000_000L), NullableLong.toOptional(areaCodeOf(2)));
+        assertEquals(OptionalLong.empty(), NullableLong.toOptional(areaCodeOf(3)));
+        assertEquals(-1L, NullableLong.orElse(NullableLong.filter(areaCodeOf(4), code -> code < 0), -1L));
+        assertEquals(NullableLong.EMPTY, NullableLong.fromOptional(OptionalLong.empty()));
+        assertEquals(5L, NullableLong.or(NullableLong.EMPTY, () -> 5L));
+    }
+
+    @Test
+    public void nullableIntRejectsValuesItDidNotPack() {
+        assertThrows(IllegalArgumentException.class, () -> NullableInt.isPresent(NullableLong.of(5)));
+        assertThrows(IllegalArgumentException.class, () -> NullableInt.orElse(NullableLong.EMPTY, 0));
+        assertThrows(IllegalArgumentException.class, () -> NullableInt.map(-1L, p -> p));
+        assertEquals(-1, NullableInt.get(NullableInt.of(-1)));
+        assertEquals(Integer.MIN_VALUE, NullableInt.get(NullableInt.of(Integer.MIN_VALUE)));
+        assertTrue(NullableInt.isEmpty(NullableInt.EMPTY));
+    }
+
+    @Test
+    @AllocationBudget(elements = SIZE, bytesPerElement = 0.01)
+    public void referenceChainsDoNotAllocate() {
+        long length = 0;
+        for (int id = 0; id < SIZE; id++) {
+            length += Nullables.orElse(Nullables.map(Nullables.filter(townOf(id), LARGE), Town::name), "").length();
+        }
+        assertTrue(length > 0);
+    }
+
+    @Test
+    @AllocationBudget(elements = SIZE, bytesPerElement = 0.01)
+    public void primitiveChainsDoNotAllocate() {
+        long total = 0;
+        for (int id = 0; id < SIZE; id++) {
+            var population = NullableInt.filter(populationOf(id), p -> p >= 500_000);
+            total += NullableInt.orElse(NullableInt.map(population, p -> p / 1_000), 0);
+            total += NullableLong.orElse(NullableLong.map(areaCodeOf(id), code -> code / 10_000_000_000L), 0L);
+        }
+        assertTrue(total > 0);
+    }
+
+    @Test
+    public void optionalChainsAllocateWhereNullableOnesDoNot() {
+        long[] totals = new long[2];
+        var optional = AllocationMeter.measure(() -> {
+            for (int id = 0; id < SIZE; id++) {
+                totals[0] += findTown(id).filter(LARGE).map(town -> OptionalInt.of(town.population() / 1_000))
+                        .orElse(OptionalInt.empty()).orElse(0);
+            }
+        });
+        var nullable = AllocationMeter.measure(() -> {
+            for (int id = 0; id < SIZE; id++) {
+                totals[1] += NullableInt.orElse(NullableInt.map(NullableInt.filter(populationOf(id), p -> p >= 500_000),
+                        p -> p / 1_000), 0);
+            }
+        });
+        System.out.printf("Optional chain: %.2f bytes/lookup, NullableInt chain: %.2f bytes/lookup%n",
+                (double) optional / SIZE, (double) nullable / SIZE);
+        assertEquals(totals[0], totals[1]);
+        if (AllocationMeter.isSupported()) {
+            // lambda bootstrapping and compilation only, nothing per lookup
+            assertTrue(nullable < SIZE / 10, "nullable chain allocated " + nullable);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package net.toiditimtoi.stream;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelSearchTest {
+
+    private final List<String> provinces = List.of("Nghe An", "Ha Noi", "Ninh Binh", "Thanh Hoa", "Nam Dinh");
+
+    @Test
+    public void sameAnswersAsStreams() {
+        // the queries of ReductionTest
+        var search = ParallelSearch.in(provinces);
+        assertEquals(provinces.stream().filter(s -> s.startsWith("N")).findFirst(), search.findFirst(s -> s.startsWith("N")));
+        assertTrue(search.findAny(s -> s.startsWith("N")).orElseThrow().startsWith("N"));
+        assertTrue(search.anyMatch(s -> s.startsWith("T")));
+        assertTrue(search.noneMatch(s -> s.length() > 100));
+        assertTrue(search.allMatch(s -> s.length() > 1));
+        assertFalse(search.allMatch(s -> s.length() > 6));
+        assertEquals(Optional.empty(), search.findFirst(String::isEmpty));
+
+        var empty = ParallelSearch.in(List.<String>of());
+        assertTrue(empty.allMatch(s -> s.length() > 100));
+        assertTrue(empty.noneMatch(s -> s.length() > 10));
+    }
+
+    @Test
+    public void findFirstReturnsTheLowestMatchingIndex() {
+        var numbers = IntStream.range(0, 1_000_000).boxed().toList();
+        var pool = new ForkJoinPool(4);
+        try {
+            var search = ParallelSearch.in(numbers).withPool(pool);
+            for (var target : List.of(0, 17, 499_999, 500_000, 999_999)) {
+                assertEquals(target, search.findFirst(i -> i >= target).orElseThrow());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(3, ParallelSearch.in(new LinkedList<>(numbers)).findFirst(i -> i > 2).orElseThrow());
+    }
+
+    @Test
+    public void siblingsStopOnceTheAnswerIsKnown() {
+        var numbers = IntStream.range(0, 100_000).boxed().toList();
+        var evaluated = new AtomicLong();
+        var pool = new ForkJoinPool(4);
+        try {
+            var found = ParallelSearch.in(numbers).withPool(pool).anyMatch(i -> {
+                evaluated.incrementAndGet();
+                busyWork();
+                return i == 10;
+            });
+            assertTrue(found);
+        } finally {
+            pool.shutdownNow();
+        }
+        System.out.println("Predicate evaluated " + evaluated.get() + " times out of " + numbers.size());
+        assertTrue(evaluated.get() < numbers.size() / 2);
+    }
+
+    // the deadline tests run on a clock that only moves when the predicate moves it
+
+    @Test
+    public void deadlineCancelsTheSearch() {
+        var clock = new AtomicLong();
+        var numbers = IntStream.range(0, 10_000).boxed().toList();
+        var search = ParallelSearch.in(numbers).withClock(clock::get).withDeadline(Duration.ofMillis(50));
+        assertThrows(CancellationException.class, () -> search.anyMatch(i -> {
+            clock.addAndGet(Duration.ofMillis(5).toNanos());
+            return false;
+        }));
+        assertTrue(search.anyMatch(i -> i == 0));
+    }
+
+    @Test
+    public void matchFoundBeforeTheDeadlineIsKept() {
+        var clock = new AtomicLong();
+        var numbers = IntStream.range(0, 256).boxed().toList();
+        var pool = new ForkJoinPool(2);
+        try {
+            var search = ParallelSearch.in(numbers).withPool(pool).withClock(clock::get).withDeadline(Duration.ofSeconds(1));
+            // the deadline passes while the match is being checked, the search ends after it
+            assertEquals(Optional.of(0), search.findAny(passingTheDeadline(clock, 0)));
+            assertEquals(Optional.of(0), search.findFirst(passingTheDeadline(clock, 0)));
+            assertFalse(search.noneMatch(passingTheDeadline(clock, 0)));
+
+            // a later match does not settle findFirst while the elements on its left were not all searched
+            assertThrows(CancellationException.class, () -> search.findFirst(passingTheDeadline(clock, 255)));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Every check moves the clock past the deadline. The first element is checked before any other, so the search
+     * has started on it before the deadline passes.
+     */
+    private static Predicate<Integer> passingTheDeadline(AtomicLong clock, int match) {
+        var firstChecked = new CountDownLatch(1);
+        return i -> {
+            if (i != 0) {
+                await(firstChecked);
+            }
+            clock.addAndGet(Duration.ofSeconds(2).toNanos());
+            firstChecked.countDown();
+            return i == match;
+        };
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void expensiveMatchBenchmark() {
+        var numbers = IntStream.range(0, 20_000).boxed().toList();
+        for (int round = 0; round < 3; round++) {
+            var start = System.nanoTime();
+            var streamResult = numbers.parallelStream().filter(i -> {
+                busyWork();
+                return i % 5_000 == 4_999;
+            }).findFirst();
+            var streamMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            var searchResult = ParallelSearch.in(numbers).findFirst(i -> {
+                busyWork();
+                return i % 5_000 == 4_999;
+            });
+            var searchMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(streamResult, searchResult);
+            System.out.println("Round " + round + ": parallel stream findFirst " + streamMillis + " ms, ParallelSearch.findFirst " + searchMillis + " ms");
+        }
+    }
+
+    private static void busyWork() {
+        var x = 0.0;
+        for (int i = 0; i < 2_000; i++) {
+            x += Math.sqrt(i);
+        }
+        if (x < 0) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
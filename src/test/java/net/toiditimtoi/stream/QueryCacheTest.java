@@ -0,0 +1,196 @@
+package net.toiditimtoi.stream;
+
+import net.toiditimtoi.workload.AggregationPipeline;
+import net.toiditimtoi.workload.City;
+import net.toiditimtoi.workload.CityDataset;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryCacheTest {
+
+    private final List<City> cities = CityDataset.generate(10_000, 42);
+
+    @Test
+    public void repeatedQueriesAreAnsweredFromTheCache() {
+        var cache = new QueryCache(100);
+        var first = cache.collect(cities, "summary by area",
+                Collectors.groupingBy(City::area, Collectors.summarizingInt(City::population)));
+        var second = cache.collect(cities, "summary by area",
+                Collectors.groupingBy(City::area, Collectors.summarizingInt(City::population)));
+        assertSame(first, second);
+
+        var partitions = cache.get(cities, AggregationPipeline.PARTITIONING,
+                () -> AggregationPipeline.PARTITIONING.run(cities.stream()));
+        assertEquals(AggregationPipeline.PARTITIONING.run(cities.stream()), partitions);
+        assertEquals(new QueryCache.Stats(1, 2, 0, 0, cache.stats().totalLoadNanos()), cache.stats());
+        assertEquals(1.0 / 3, cache.stats().hitRate(), 1e-9);
+    }
+
+    @Test
+    public void sourcesAreComparedByIdentityAndVersion() {
+        var cache = new QueryCache(100);
+        var copy = new ArrayList<>(cities);
+        var loads = new AtomicInteger();
+        cache.get(cities, "count", loads::incrementAndGet);
+        cache.get(copy, "count", loads::incrementAndGet);
+        assertEquals(2, loads.get(), "an equal list is another source");
+
+        cache.get(copy, 1, "count", loads::incrementAndGet);
+        cache.get(copy, 1, "count", loads::incrementAndGet);
+        cache.get(copy, 2, "count", loads::incrementAndGet);
+        assertEquals(4, loads.get());
+
+        cache.invalidate(copy);
+        assertEquals(1, cache.size());
+        cache.get(cities, "count", loads::incrementAndGet);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void leastRecentlyUsedResultIsEvicted() {
+        var cache = new QueryCache(2);
+        var loads = new AtomicInteger();
+        cache.get(cities, "a", loads::incrementAndGet);
+        cache.get(cities, "b", loads::incrementAndGet);
+        cache.get(cities, "a", loads::incrementAndGet);
+        cache.get(cities, "c", loads::incrementAndGet);
+        assertEquals(3, loads.get());
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.stats().evictions());
+
+        cache.get(cities, "a", loads::incrementAndGet);
+        assertEquals(3, loads.get(), "a was used recently and stays");
+        cache.get(cities, "b", loads::incrementAndGet);
+        assertEquals(4, loads.get(), "b was evicted and loads again");
+    }
+
+    @Test
+    public void concurrentCallersLoadOnce() throws Exception {
+        var cache = new QueryCache(100);
+        var loads = new AtomicInteger();
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var results = new ArrayList<Future<Object>>();
+            results.add(executor.submit(() -> cache.get(cities, "slow", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return AggregationPipeline.GROUPING.run(cities.stream());
+            })));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> cache.get(cities, "slow", () -> {
+                    loads.incrementAndGet();
+                    return null;
+                })));
+            }
+            release.countDown();
+            var first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (var result : results) {
+                assertSame(first, result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1, cache.stats().misses());
+            assertEquals(7, cache.stats().hits());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void resultsBeingLoadedAreNotEvicted() throws Exception {
+        var cache = new QueryCache(1);
+        var loads = new AtomicInteger();
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            var first = executor.submit(() -> cache.get(cities, "slow", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "slow result";
+            }));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            assertEquals("fast result", cache.get(cities, "fast", () -> "fast result"));
+            assertEquals(1, cache.stats().evictions(), "the loaded result goes, the one in flight stays");
+
+            var second = executor.submit(() -> cache.get(cities, "slow", () -> {
+                loads.incrementAndGet();
+                return "second load";
+            }));
+            release.countDown();
+            assertEquals("slow result", first.get(10, TimeUnit.SECONDS));
+            assertEquals("slow result", second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+            assertEquals(1, cache.size());
+            assertEquals(1, cache.stats().evictions());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedLoadsAreNotCached() {
+        var cache = new QueryCache(100);
+        assertThrows(IllegalStateException.class, () -> cache.get(cities, "broken", () -> {
+            throw new IllegalStateException("dataset offline");
+        }));
+        assertEquals(0, cache.size());
+        assertEquals("fine", cache.get(cities, "broken", () -> "fine"));
+        assertEquals(1, cache.stats().loadFailures());
+        assertEquals(2, cache.stats().misses());
+    }
+
+    @Test
+    public void recursiveLoadIsRejected() {
+        var cache = new QueryCache(100);
+        assertThrows(IllegalStateException.class,
+                () -> cache.get(cities, "self", () -> cache.get(cities, "self", () -> "never")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkAgainstRecomputing() {
+        var dataset = CityDataset.generate(1_000_000, 7);
+        var cache = new QueryCache(100);
+        for (int round = 0; round < 5; round++) {
+            var start = System.nanoTime();
+            var computed = AggregationPipeline.TEEING.run(dataset.stream());
+            var computeTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            var cached = cache.get(dataset, AggregationPipeline.TEEING, () -> AggregationPipeline.TEEING.run(dataset.stream()));
+            var cacheTime = System.nanoTime() - start;
+
+            assertEquals(computed, cached);
+            System.out.printf("Round %d: recompute %,d us, cache %,d us%n", round, computeTime / 1_000, cacheTime / 1_000);
+        }
+        var stats = cache.stats();
+        System.out.printf("hits %d, misses %d, average load %,.0f us%n", stats.hits(), stats.misses(), stats.averageLoadNanos() / 1_000);
+        assertEquals(4, stats.hits());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package net.toiditimtoi.stream;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RandomStreamsTest {
+
+    @Test
+    public void replacingMathRandomGenerate() {
+        // same shape as PrimitiveTypesStreamTest.creatingIntStream, without the shared Random
+        new RandomStreams(42).ints(100, 0, 1000)
+                .forEach(System.out::println);
+        assertTrue(RandomStreams.fromEntropy().ints(10_000, 0, 1000).allMatch(i -> i >= 0 && i < 1000));
+    }
+
+    @Test
+    public void seededRunsAreReproducible() {
+        var count = 100_000;
+        var sequential = new RandomStreams(2023).ints(count, 0, 1_000_000).toArray();
+        var parallel = new RandomStreams(2023).ints(count, 0, 1_000_000).parallel().toArray();
+        assertArrayEquals(sequential, parallel);
+
+        var other = new RandomStreams(2024).ints(count, 0, 1_000_000).toArray();
+        assertFalse(java.util.Arrays.equals(sequential, other));
+    }
+
+    @Test
+    public void fillProducesTheSameValuesAsTheStream() {
+        var source = new RandomStreams(7);
+        var ints = new int[50_000];
+        source.fill(ints, -10, 10);
+        assertArrayEquals(source.ints(ints.length, -10, 10).toArray(), ints);
+
+        var longs = new long[50_000];
+        source.fill(longs, 0, Long.MAX_VALUE);
+        assertArrayEquals(source.longs(longs.length, 0, Long.MAX_VALUE).parallel().toArray(), longs);
+
+        var doubles = new double[50_000];
+        source.fill(doubles, 0.0, 1.0);
+        assertArrayEquals(source.doubles(doubles.length).toArray(), doubles);
+    }
+
+    @Test
+    public void splitsFallOnBlockBoundaries() {
+        var spliterator = new RandomStreams(1).ints(3 * RandomStreams.BLOCK_SIZE + 5, 0, 10).spliterator();
+        var prefix = spliterator.trySplit();
+        assertEquals(0, prefix.estimateSize() % RandomStreams.BLOCK_SIZE);
+        assertEquals(3 * RandomStreams.BLOCK_SIZE + 5, prefix.estimateSize() + spliterator.estimateSize());
+        assertNull(new RandomStreams(1).ints(RandomStreams.BLOCK_SIZE, 0, 10).spliterator().trySplit());
+    }
+
+    @Test
+    public void invalidBoundsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new RandomStreams(1).ints(10, 5, 5));
+        assertThrows(IllegalArgumentException.class, () -> new RandomStreams("Random", 1));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void generationBenchmark() {
+        var count = 20_000_000;
+        for (int round = 0; round < 3; round++) {
+            var start = System.nanoTime();
+            var mathRandomSum = IntStream.generate(() -> (int) (Math.random() * 1000))
+                    .parallel()
+                    .limit(count)
+                    .asLongStream()
+                    .sum();
+            var mathRandomMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            var splittableSum = new RandomStreams(round).ints(count, 0, 1000)
+                    .parallel()
+                    .asLongStream()
+                    .sum();
+            var splittableMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            new RandomStreams(round).fill(new int[count], 0, 1000);
+            var fillMillis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("Round " + round + ": Math.random " + mathRandomMillis + " ms (sum " + mathRandomSum
+                    + "), splittable stream " + splittableMillis + " ms (sum " + splittableSum + "), fill " + fillMillis + " ms");
+        }
+    }
+}
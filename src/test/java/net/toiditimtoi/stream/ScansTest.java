@@ -0,0 +1,111 @@
+package net.toiditimtoi.stream;
+
+import net.toiditimtoi.workload.Area;
+import net.toiditimtoi.workload.City;
+import net.toiditimtoi.workload.CityDataset;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScansTest {
+
+    @Test
+    public void runningTotalsOfSmallInputs() {
+        assertArrayEquals(new int[]{1, 3, 6, 10}, Scans.scan(new int[]{1, 2, 3, 4}, Integer::sum));
+        assertArrayEquals(new long[]{5, 5, 7, 7}, Scans.scan(new long[]{5, 1, 7, 2}, Math::max));
+        assertArrayEquals(new double[]{0.5, 1.0, 2.0}, Scans.scan(new double[]{0.5, 0.5, 1.0}, Double::sum));
+        assertArrayEquals(new int[0], Scans.scan(new int[0], Integer::sum));
+    }
+
+    @Test
+    public void parallelScansMatchTheSequentialLoop() {
+        // a few blocks and a partial one
+        var size = Scans.BLOCK_SIZE * 5 + 123;
+        var ints = new int[size];
+        new RandomStreams(3).fill(ints, -1_000, 1_000);
+        var expectedInts = ints.clone();
+        Arrays.parallelPrefix(expectedInts, Integer::sum);
+        assertArrayEquals(expectedInts, Scans.scan(ints, Integer::sum));
+        assertArrayEquals(Arrays.stream(ints).asLongStream().toArray(), Scans.scan(Arrays.stream(ints).asLongStream().toArray(), (a, b) -> b));
+
+        var longs = Arrays.stream(ints).asLongStream().toArray();
+        var expectedMax = longs.clone();
+        Arrays.parallelPrefix(expectedMax, Math::max);
+        assertArrayEquals(expectedMax, Scans.scan(longs, Math::max));
+
+        var doubles = Arrays.stream(ints).asDoubleStream().toArray();
+        var expectedDoubles = doubles.clone();
+        for (int i = 1; i < size; i++) {
+            expectedDoubles[i] += expectedDoubles[i - 1];
+        }
+        // integral values, so the sums are exact in any order
+        assertArrayEquals(expectedDoubles, Scans.scan(doubles, Double::sum));
+    }
+
+    @Test
+    public void cumulativePopulationShare() {
+        var cities = CityDataset.generate(200_000, 4).stream()
+                .sorted(Comparator.comparingInt(City::population).reversed())
+                .toList();
+        var totals = Scans.runningTotals(cities, City::population);
+        var total = cities.stream().mapToLong(City::population).sum();
+        assertEquals(total, totals[totals.length - 1]);
+        assertEquals(cities.get(0).population(), totals[0]);
+
+        var citiesForHalf = 0;
+        while (totals[citiesForHalf] * 2 < total) {
+            citiesForHalf++;
+        }
+        System.out.printf("The %,d largest of %,d cities hold half of the population%n", citiesForHalf + 1, cities.size());
+
+        // cumulative share per area, in the same order
+        var byArea = cities.stream().collect(Collectors.groupingBy(City::area));
+        for (var area : Area.values()) {
+            var shares = Scans.scanDouble(byArea.get(area), city -> (double) city.population() / total, Double::sum);
+            var areaShare = byArea.get(area).stream().mapToLong(City::population).sum() / (double) total;
+            assertEquals(areaShare, shares[shares.length - 1], 1e-9);
+        }
+
+        // a linked list is copied first
+        assertArrayEquals(new long[]{1, 3, 6}, Scans.runningTotals(new LinkedList<>(List.of(1, 2, 3)), Integer::longValue));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkAgainstLoopAndParallelPrefix() {
+        var size = 10_000_000;
+        var values = new long[size];
+        new RandomStreams(1).fill(values, 0, 1_000);
+        for (int round = 0; round < 3; round++) {
+            var start = System.nanoTime();
+            var loop = new long[size];
+            var acc = 0L;
+            for (int i = 0; i < size; i++) {
+                acc += values[i];
+                loop[i] = acc;
+            }
+            var loopTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            var prefix = values.clone();
+            Arrays.parallelPrefix(prefix, Long::sum);
+            var prefixTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            var scanned = Scans.scan(values, Long::sum);
+            var scanTime = System.nanoTime() - start;
+
+            assertArrayEquals(loop, scanned);
+            assertArrayEquals(loop, prefix);
+            System.out.printf("10M longs: loop %.1f ms, Arrays.parallelPrefix (with copy) %.1f ms, Scans.scan %.1f ms%n",
+                    loopTime / 1e6, prefixTime / 1e6, scanTime / 1e6);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package net.toiditimtoi.stream;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SequencesTest {
+
+    @Test
+    public void sameElementsAsIterate() {
+        // the same sequences as in StreamApiTest.infinite_stream_creation and PrimitiveTypesStreamTest.creatingIntStream
+        assertArrayEquals(IntStream.iterate(0, i -> i < 100, i -> i + 5).toArray(),
+                Sequences.range(0, 100, 5).toArray());
+        assertArrayEquals(Stream.iterate(5000, i -> i < 6000, i -> i + 1).mapToInt(i -> i).toArray(),
+                Sequences.range(5000, 6000, 1).toArray());
+        assertArrayEquals(Stream.iterate(100, i -> i + 1).limit(100).mapToInt(i -> i).toArray(),
+                Sequences.arithmetic(100, 1, 100).toArray());
+        assertArrayEquals(IntStream.iterate(10, i -> i > -7, i -> i - 3).toArray(),
+                Sequences.range(10, -7, -3).toArray());
+        assertEquals(0, Sequences.range(10, 0, 1).count());
+    }
+
+    @Test
+    public void overflowWrapsLikeIterate() {
+        assertArrayEquals(IntStream.iterate(Integer.MAX_VALUE - 10, i -> i + 7).limit(10).toArray(),
+                Sequences.arithmetic(Integer.MAX_VALUE - 10, 7, 10).parallel().toArray());
+        assertArrayEquals(LongStream.iterate(3, i -> i * 7).limit(100).toArray(),
+                Sequences.geometric(3L, 7L, 100).parallel().toArray());
+        assertEquals(4, Sequences.range(Long.MIN_VALUE, Long.MAX_VALUE, Long.MAX_VALUE / 2 + 1).count());
+    }
+
+    @Test
+    public void spliteratorIsSizedAndSplitsInHalf() {
+        var spliterator = Sequences.arithmetic(0L, 3L, 1_000_001).spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        assertEquals(1_000_001, spliterator.getExactSizeIfKnown());
+
+        var prefix = spliterator.trySplit();
+        assertEquals(500_000, prefix.estimateSize());
+        assertEquals(500_001, spliterator.estimateSize());
+        spliterator.tryAdvance((long first) -> assertEquals(1_500_000, first));
+    }
+
+    @Test
+    public void parallelResultMatchesSequential() {
+        long count = 10_000_000;
+        var sequential = Sequences.arithmetic(7L, 3L, count).sum();
+        var parallel = Sequences.arithmetic(7L, 3L, count).parallel().sum();
+        assertEquals(sequential, parallel);
+        assertEquals(7 * count + 3 * (count * (count - 1) / 2), parallel);
+
+        assertArrayEquals(Sequences.arithmetic(0.5, 0.1, 1_000).toArray(),
+                Sequences.arithmetic(0.5, 0.1, 1_000).parallel().toArray());
+        assertArrayEquals(Sequences.geometric(1.0, 1.001, 1_000).toArray(),
+                Sequences.geometric(1.0, 1.001, 1_000).parallel().toArray(), 1e-9);
+    }
+
+    @Test
+    public void genericJump() {
+        var powersOfTwo = Sequences.iterate(BigInteger.ONE, 200, b -> b.shiftLeft(1), (seed, n) -> seed.shiftLeft((int) n))
+                .parallel()
+                .toList();
+        assertEquals(BigInteger.TWO.pow(199), powersOfTwo.get(199));
+        assertEquals(Stream.iterate(BigInteger.ONE, b -> b.shiftLeft(1)).limit(200).toList(), powersOfTwo);
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void parallelScanBenchmark() {
+        long count = 20_000_000;
+        for (int round = 0; round < 3; round++) {
+            var start = System.nanoTime();
+            var iterateSum = LongStream.iterate(0, i -> i + 3).limit(count).parallel().filter(i -> i % 7 == 0).sum();
+            var iterateMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            var sequenceSum = Sequences.arithmetic(0L, 3L, count).parallel().filter(i -> i % 7 == 0).sum();
+            var sequenceMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(iterateSum, sequenceSum);
+            System.out.println("Round " + round + ": iterate().limit() " + iterateMillis + " ms, Sequences.arithmetic " + sequenceMillis + " ms");
+        }
+    }
+}
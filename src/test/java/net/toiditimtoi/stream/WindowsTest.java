@@ -0,0 +1,112 @@
+package net.toiditimtoi.stream;
+
+import net.toiditimtoi.collection.IncrementalCollectors;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WindowsTest {
+
+    private static Stream<Integer> numbers(int count) {
+        return IntStream.range(0, count).boxed();
+    }
+
+    @Test
+    public void chunking() {
+        assertEquals(List.of(List.of(0, 1, 2), List.of(3, 4, 5), List.of(6, 7, 8), List.of(9)),
+                Windows.chunked(numbers(10), 3).toList());
+        assertEquals(List.of(3, 12, 21, 9), Windows.chunked(numbers(10), 3, Collectors.summingInt(i -> i)).toList());
+        assertEquals(4, Windows.chunked(numbers(10), 3).spliterator().getExactSizeIfKnown());
+        assertEquals(List.of(), Windows.chunked(numbers(0), 3).toList());
+        assertThrows(IllegalArgumentException.class, () -> Windows.chunked(numbers(10), 0));
+    }
+
+    @Test
+    public void slidingWindows() {
+        assertEquals(List.of(List.of(0, 1, 2), List.of(1, 2, 3), List.of(2, 3, 4)), Windows.sliding(numbers(5), 3).toList());
+        assertEquals(List.of(List.of(0, 1, 2), List.of(2, 3, 4), List.of(4, 5, 6)), Windows.sliding(numbers(8), 3, 2).toList());
+        // a step larger than the window skips the elements in between
+        assertEquals(List.of(List.of(0, 1), List.of(5, 6)), Windows.sliding(numbers(9), 2, 5).toList());
+        assertEquals(List.of(), Windows.sliding(numbers(2), 3).toList());
+        assertEquals(3, Windows.sliding(numbers(8), 3, 2).spliterator().getExactSizeIfKnown());
+    }
+
+    @Test
+    public void movingAverage() {
+        var populations = new int[]{100, 200, 300, 400, 500, 600};
+        var averages = Windows.sliding(IntStream.of(populations).boxed(), 3, IncrementalCollectors.averagingInt(Integer::intValue))
+                .toList();
+        assertEquals(List.of(200.0, 300.0, 400.0, 500.0), averages);
+
+        var values = new Random(5).ints(50_000, 0, 1_000).boxed().toList();
+        var naive = Windows.sliding(values.stream(), 20)
+                .map(window -> window.stream().mapToInt(Integer::intValue).average().orElseThrow())
+                .toList();
+        var incremental = Windows.sliding(values.parallelStream(), 20, IncrementalCollectors.averagingInt(Integer::intValue))
+                .toList();
+        assertEquals(naive, incremental);
+    }
+
+    @Test
+    public void parallelWindowsAreTheSequentialOnes() {
+        var source = IntStream.range(0, 10_007).boxed().toList();
+        for (var size : new int[]{1, 2, 7, 64, 1000}) {
+            assertEquals(Windows.chunked(source.stream(), size).toList(), Windows.chunked(source.parallelStream(), size).toList());
+            for (var step : new int[]{1, 3, 64, 2000}) {
+                assertEquals(Windows.sliding(source.stream(), size, step).toList(),
+                        Windows.sliding(source.parallelStream(), size, step).toList(), size + "/" + step);
+            }
+        }
+    }
+
+    @Test
+    public void splittingMovesTheBoundaryToTheNextWindow() {
+        // a sequential pipeline does not split, a list does
+        var windows = Windows.sliding(numbers(100).toList().stream(), 10, 3).spliterator();
+        var total = windows.getExactSizeIfKnown();
+        var prefix = windows.trySplit();
+        assertNotNull(prefix);
+        assertTrue(windows.hasCharacteristics(Spliterator.SIZED));
+        assertEquals(total, prefix.getExactSizeIfKnown() + windows.getExactSizeIfKnown());
+
+        var all = new ArrayList<List<Integer>>();
+        prefix.forEachRemaining(all::add);
+        windows.forEachRemaining(all::add);
+        assertEquals(Windows.sliding(numbers(100), 10, 3).toList(), all);
+    }
+
+    @Test
+    public void adjacentRuns() {
+        var provinces = List.of("Ha Noi", "Hai Phong", "Hue", "Da Nang", "Dong Nai", "Ha Giang", "Can Tho");
+        assertEquals(List.of(List.of("Ha Noi", "Hai Phong", "Hue"), List.of("Da Nang", "Dong Nai"), List.of("Ha Giang"), List.of("Can Tho")),
+                Windows.runsBy(provinces.stream(), name -> name.charAt(0)).toList());
+
+        // runs of increasing numbers
+        assertEquals(List.of(List.of(1, 2, 5), List.of(3, 4), List.of(1)),
+                Windows.runs(Stream.of(1, 2, 5, 3, 4, 1), (previous, next) -> next > previous).toList());
+
+        var sorted = IntStream.range(0, 100_000).map(i -> i / 7).boxed().toList();
+        var runs = Windows.runsBy(sorted.parallelStream(), i -> i).toList();
+        assertEquals(Windows.runsBy(sorted.stream(), i -> i).toList(), runs);
+        assertEquals(100_000 / 7 + 1, runs.size());
+    }
+
+    @Test
+    public void operatorsAreLazy() {
+        var batches = Windows.chunked(Stream.iterate(0, i -> i + 1), 1_000)
+                .limit(3)
+                .map(List::size)
+                .toList();
+        assertEquals(List.of(1_000, 1_000, 1_000), batches);
+        assertEquals(List.of(0, 1, 2), Windows.sliding(Stream.iterate(0, i -> i + 1), 3).findFirst().orElseThrow());
+        assertEquals(List.of(0, 1), Windows.runsBy(Stream.iterate(0, i -> i + 1), i -> i / 2).findFirst().orElseThrow());
+    }
+}
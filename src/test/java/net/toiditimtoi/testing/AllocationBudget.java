@@ -0,0 +1,39 @@
+package net.toiditimtoi.testing;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Fails the annotated test when its body allocates more than {@code fixedBytes + elements * bytesPerElement}
+ * on the thread running it. Only the test thread is measured, so keep the measured pipelines sequential.
+ * <pre>
+ * &#64;Test
+ * &#64;AllocationBudget(elements = 1_000_000, bytesPerElement = 0.5)
+ * public void summingDoesNotBox() { ... }
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@ExtendWith(AllocationBudgetExtension.class)
+public @interface AllocationBudget {
+
+    /**
+     * How many elements the test body processes.
+     */
+    long elements();
+
+    /**
+     * Bytes each element may allocate on average.
+     */
+    double bytesPerElement();
+
+    /**
+     * One-off allocations that do not depend on the number of elements, such as
+     * lambda bootstrapping and class loading on the first run.
+     */
+    long fixedBytes() default 256 * 1024;
+}
@@ -0,0 +1,50 @@
+package net.toiditimtoi.testing;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Measures what the test body allocates on the test thread and checks it against the {@link AllocationBudget}
+ * of the test method. The figures are published as a report entry and printed, so they show up in the
+ * test output whether the budget holds or not.
+ */
+public class AllocationBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(AllocationBudgetExtension.class);
+    private static final String START = "allocatedBytesAtStart";
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(START, AllocationMeter.currentThreadAllocatedBytes());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        long end = AllocationMeter.currentThreadAllocatedBytes();
+        long start = context.getStore(NAMESPACE).remove(START, Long.class);
+        var budget = context.getRequiredTestMethod().getAnnotation(AllocationBudget.class);
+        if (budget == null) {
+            return;
+        }
+        if (start < 0) {
+            report(context, "not measured, thread allocated memory is not supported by this JVM");
+            return;
+        }
+
+        long allocated = end - start;
+        long limit = budget.fixedBytes() + (long) Math.ceil(budget.elements() * budget.bytesPerElement());
+        var perElement = budget.elements() == 0 ? 0 : (double) allocated / budget.elements();
+        var summary = String.format("%,d bytes allocated, %.2f bytes/element over %,d elements (budget %.2f bytes/element, limit %,d bytes)",
+                allocated, perElement, budget.elements(), budget.bytesPerElement(), limit);
+        report(context, summary);
+        if (allocated > limit) {
+            throw new AssertionError(context.getDisplayName() + " exceeded its allocation budget: " + summary);
+        }
+    }
+
+    private static void report(ExtensionContext context, String summary) {
+        context.publishReportEntry("allocation", summary);
+        System.out.println(context.getDisplayName() + " allocation: " + summary);
+    }
+}
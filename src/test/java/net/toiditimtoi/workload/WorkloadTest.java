@@ -0,0 +1,69 @@
+package net.toiditimtoi.workload;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkloadTest {
+
+    @Test
+    public void generatedDatasetIsReproducible() {
+        var cities = CityDataset.generate(100_000, 7);
+        assertEquals(100_000, cities.size());
+        assertEquals(cities, CityDataset.generate(100_000, 7));
+        assertNotEquals(cities, CityDataset.generate(100_000, 8));
+        assertTrue(cities.stream().allMatch(city -> city.population() >= 1_000));
+    }
+
+    @Test
+    public void savingAndLoadingCsv() throws Exception {
+        var csv = Files.createTempFile("cities", ".csv");
+        try {
+            var cities = List.of(new City("Ha Noi", Area.NORTH, 7_000_000), new City("Can Tho", Area.SOUTH, 3_000_000));
+            CityDataset.save(cities, csv);
+            Files.writeString(csv, "# comment\n\n" + Files.readString(csv));
+            assertEquals(cities, CityDataset.load(csv));
+        } finally {
+            Files.delete(csv);
+        }
+        assertThrows(IllegalArgumentException.class, () -> CityDataset.parse("Hue,MIDDLE"));
+    }
+
+    @Test
+    public void pipelinesGiveTheSameResultInParallel() {
+        var cities = CityDataset.generate(50_000, 1);
+        for (var pipeline : AggregationPipeline.values()) {
+            // IntSummaryStatistics has no equals, compare the printed results
+            assertEquals(pipeline.run(cities.stream()).toString(), pipeline.run(cities.parallelStream()).toString(), pipeline.name());
+        }
+    }
+
+    @Test
+    public void resultHashIsTheSameInEveryRunAndMode() {
+        var cities = CityDataset.generate(50_000, 1);
+        // pinned values: a hash that mixed in identity hash codes would differ from one JVM to the next
+        var expected = Map.of(
+                AggregationPipeline.GROUPING, -1126975560,
+                AggregationPipeline.TEEING, -1611890113,
+                AggregationPipeline.TOP_K, -1310582939,
+                AggregationPipeline.PARTITIONING, 51816);
+        for (var pipeline : AggregationPipeline.values()) {
+            assertEquals(expected.get(pipeline), AggregationPipeline.resultHash(pipeline.run(cities.stream())), pipeline.name());
+            assertEquals(expected.get(pipeline), AggregationPipeline.resultHash(pipeline.run(cities.parallelStream())), pipeline.name());
+        }
+    }
+
+    @Test
+    public void resourceSnapshotMeasuresAllocation() {
+        var start = ResourceSnapshot.take();
+        var cities = CityDataset.generate(10_000, 3);
+        var cost = ResourceSnapshot.take().since(start);
+        assertTrue(cost.nanoTime() > 0);
+        assertTrue(cost.allocatedBytes() == -1 || cost.allocatedBytes() > 10_000L * 16, "allocated " + cost.allocatedBytes());
+        assertEquals(10_000, cities.size());
+    }
+}